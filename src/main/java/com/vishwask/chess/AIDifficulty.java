@@ -0,0 +1,56 @@
+package com.vishwask.chess;
+
+import com.vishwask.engine.SearchLimits;
+
+// Strength of the computer opponent. Each level caps the search by depth and nodes and blurs the
+// evaluation, so weak levels cost well under a millisecond per move and only the top levels search for real.
+// Configured engine limits (chess.ai.*) still apply on top; MASTER is the engine as configured.
+public enum AIDifficulty {
+    BEGINNER(1, 150, 300, false, false),
+    CASUAL(2, 1_500, 150, false, false),
+    CLUB(4, 20_000, 50, false, false),
+    EXPERT(6, 250_000, 15, false, false),
+    MASTER(SearchLimits.MAX_DEPTH, Long.MAX_VALUE, 0, true, true);
+
+    // For games created before levels existed, which were played at full strength.
+    public static final AIDifficulty LEGACY = MASTER;
+
+    private final int maxDepth;
+    private final long nodeBudget;
+    private final int evalNoise;
+    private final boolean ponder;
+    private final boolean parallel;
+
+    AIDifficulty(int maxDepth, long nodeBudget, int evalNoise, boolean ponder, boolean parallel) {
+        this.maxDepth = maxDepth;
+        this.nodeBudget = nodeBudget;
+        this.evalNoise = evalNoise;
+        this.ponder = ponder;
+        this.parallel = parallel;
+    }
+
+    public static AIDifficulty parse(String name, AIDifficulty fallback) {
+        for (AIDifficulty level : values()) {
+            if (level.name().equalsIgnoreCase(name)) {
+                return level;
+            }
+        }
+        return fallback;
+    }
+
+    // The configured limits narrowed to this level: shallower, fewer nodes, one thread below MASTER.
+    public SearchLimits limit(SearchLimits configured) {
+        return configured.withDepth(Math.min(configured.getDepth(), maxDepth))
+                .withNodes(Math.min(configured.getNodes(), nodeBudget))
+                .withThreads(parallel ? configured.getThreads() : 1)
+                .withEvalNoise(evalNoise);
+    }
+
+    public int getMaxDepth() { return maxDepth; }
+    public long getNodeBudget() { return nodeBudget; }
+    public int getEvalNoise() { return evalNoise; }
+    // Whether the level searches ahead on the human's time. Weak levels answer too fast to need it, and
+    // levels with evaluation noise search with a table of their own, so a missed ponder search would leave
+    // nothing behind for the reply.
+    public boolean isPonder() { return ponder; }
+}
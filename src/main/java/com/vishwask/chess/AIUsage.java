@@ -0,0 +1,88 @@
+package com.vishwask.chess;
+
+import com.vishwask.engine.EngineScheduler;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Engine work spent on computer moves per difficulty level since startup, pondering included. A search is
+// counted when its job ends, whatever the outcome, so ponder misses and searches that were preempted,
+// cancelled or displaced count the work they did. CPU time is reported as null where the JVM cannot measure
+// it.
+public class AIUsage {
+
+    private final Map<AIDifficulty, Counters> levels = new EnumMap<>(AIDifficulty.class);
+
+    public AIUsage() {
+        for (AIDifficulty level : AIDifficulty.values()) {
+            levels.put(level, new Counters());
+        }
+    }
+
+    // Records the job's work once it has ended.
+    public void recordSearch(AIDifficulty level, EngineScheduler.Job job) {
+        job.getFinished().thenAccept(finished -> {
+            Counters counters = levels.get(level);
+            counters.searches.increment();
+            counters.nodes.add(finished.getNodes());
+            if (finished.getCpuNanos() < 0) {
+                counters.cpuUnmeasured.increment();
+            } else {
+                counters.cpuNanos.add(finished.getCpuNanos());
+            }
+        });
+    }
+
+    public void recordBookMove(AIDifficulty level) {
+        levels.get(level).bookMoves.increment();
+    }
+
+    public List<LevelUsage> snapshot() {
+        List<LevelUsage> usage = new ArrayList<>();
+        for (Map.Entry<AIDifficulty, Counters> entry : levels.entrySet()) {
+            usage.add(new LevelUsage(entry.getKey(), entry.getValue()));
+        }
+        return usage;
+    }
+
+    private static final class Counters {
+        private final LongAdder searches = new LongAdder();
+        private final LongAdder bookMoves = new LongAdder();
+        private final LongAdder nodes = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder cpuUnmeasured = new LongAdder();
+    }
+
+    public static final class LevelUsage {
+        private final AIDifficulty level;
+        private final long searches;
+        private final long bookMoves;
+        private final long nodes;
+        // Null when some search could not measure its CPU time.
+        private final Long cpuNanos;
+
+        private LevelUsage(AIDifficulty level, Counters counters) {
+            this.level = level;
+            this.searches = counters.searches.sum();
+            this.bookMoves = counters.bookMoves.sum();
+            this.nodes = counters.nodes.sum();
+            this.cpuNanos = counters.cpuUnmeasured.sum() == 0 ? counters.cpuNanos.sum() : null;
+        }
+
+        public AIDifficulty getLevel() { return level; }
+        public long getSearches() { return searches; }
+        public long getBookMoves() { return bookMoves; }
+        public long getNodes() { return nodes; }
+        public Long getCpuMillis() { return cpuNanos != null ? cpuNanos / 1_000_000L : null; }
+
+        public Long getAverageCpuMicros() {
+            if (cpuNanos == null) {
+                return null;
+            }
+            return searches == 0 ? 0 : cpuNanos / 1000L / searches;
+        }
+    }
+}
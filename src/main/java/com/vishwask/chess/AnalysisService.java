@@ -0,0 +1,140 @@
+package com.vishwask.chess;
+
+import com.vishwask.engine.EngineScheduler;
+import com.vishwask.engine.SearchLimits;
+import com.vishwask.engine.SearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Position analysis on demand (hints, spectators, the analysis API). Searches run at background priority on
+// the engine scheduler. Requests for the same position and limits are answered by one search: a request
+// arriving while it runs waits for it (single flight), and the result is kept for a short while afterwards
+// for anyone asking again, unless the scheduler searched shallower than asked because of its backlog.
+// Positions are matched by Zobrist key.
+//
+// Whatever depth is asked for, an analysis stops after MAX_TIME_MILLIS and MAX_NODES nodes per line, so no
+// request holds a worker for long; live searches may also preempt it, see EngineScheduler.
+@Service
+public class AnalysisService {
+
+    public static final int MAX_DEPTH = 20;
+    public static final long MAX_TIME_MILLIS = 10_000;
+    public static final long MAX_NODES = 10_000_000;
+    public static final int MAX_LINES = 5;
+
+    private final EngineScheduler engineScheduler;
+    private final long ttlNanos;
+    private final int cacheSize;
+
+    private final Map<Key, CompletableFuture<SearchResult>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, Cached> cache;
+
+    @Autowired
+    public AnalysisService(EngineScheduler engineScheduler,
+                           @Value("${chess.analysis.cache-ttl-seconds:30}") long ttlSeconds,
+                           @Value("${chess.analysis.cache-size:1000}") int cacheSize) {
+        this.engineScheduler = engineScheduler;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(ttlSeconds, 0));
+        this.cacheSize = Math.max(cacheSize, 0);
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<Key, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+                return size() > AnalysisService.this.cacheSize;
+            }
+        });
+    }
+
+    // Completes with the analysis, or exceptionally with RejectedExecutionException when the engine has no
+    // room for background work. requester is used for fair sharing between users on the scheduler.
+    public CompletableFuture<SearchResult> analyze(ChessBoard position, SearchLimits requested, String requester) {
+        SearchLimits limits = bounded(requested);
+        Key key = new Key(position.getZobristKey(), limits);
+        Cached cached = cache.get(key);
+        if (cached != null) {
+            if (System.nanoTime() - cached.expiresAt < 0) {
+                return CompletableFuture.completedFuture(cached.result);
+            }
+            cache.remove(key, cached);
+        }
+
+        EngineScheduler.Job[] started = new EngineScheduler.Job[1];
+        CompletableFuture<SearchResult> search = inFlight.computeIfAbsent(key, k -> {
+            started[0] = engineScheduler.submit(requester, EngineScheduler.Priority.BACKGROUND, position, limits);
+            return started[0].getFuture();
+        });
+        if (started[0] != null) {
+            EngineScheduler.Job job = started[0];
+            search.whenComplete((result, failure) -> {
+                inFlight.remove(key, search);
+                boolean degraded = job.getLimits().getDepth() < limits.getDepth();
+                if (result != null && !degraded && ttlNanos > 0 && cacheSize > 0) {
+                    cache.put(key, new Cached(result, System.nanoTime() + ttlNanos));
+                }
+            });
+        }
+        // A dependent future per caller, so one caller cancelling does not cancel the others.
+        return search.thenApply(result -> result);
+    }
+
+    static SearchLimits bounded(SearchLimits limits) {
+        return limits.withNodes(Math.min(limits.getNodes(), MAX_NODES))
+                .withTime(Math.min(limits.getSoftMillis(), MAX_TIME_MILLIS), Math.min(limits.getHardMillis(), MAX_TIME_MILLIS));
+    }
+
+    // Searches running now, for monitoring.
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private static final class Key {
+        private final long zobristKey;
+        private final int depth;
+        private final long nodes;
+        private final long softMillis;
+        private final long hardMillis;
+        private final int lines;
+
+        Key(long zobristKey, SearchLimits limits) {
+            this.zobristKey = zobristKey;
+            this.depth = limits.getDepth();
+            this.nodes = limits.getNodes();
+            this.softMillis = limits.getSoftMillis();
+            this.hardMillis = limits.getHardMillis();
+            this.lines = limits.getLines();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return zobristKey == other.zobristKey && depth == other.depth && nodes == other.nodes
+                    && softMillis == other.softMillis && hardMillis == other.hardMillis && lines == other.lines;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(zobristKey, depth, nodes, softMillis, hardMillis, lines);
+        }
+    }
+
+    private static final class Cached {
+        private final SearchResult result;
+        private final long expiresAt;
+
+        Cached(SearchResult result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.vishwask.chess;
+
+// Attack sets for every square, built once when the class loads. Leapers are plain lookups; sliders use
+// magic bitboards, where (occupancy & mask) * magic >>> shift indexes a shared table of attack sets.
+// Squares follow ChessBoard's numbering (a8 = 0, h1 = 63).
+public final class Attacks {
+
+    // Found offline with a seeded random search for this square numbering; the loader verifies them.
+    private static final long[] ROOK_MAGICS = {
+        0x3080004000802010L, 0x0C40029005C02004L, 0x4080100259200080L, 0x1100042009021000L,
+        0x2100030010080004L, 0x1200860044001810L, 0x0400080110008402L, 0x2200008040240102L,
+        0x0000800020804004L, 0x0184804000200480L, 0x0848801004200080L, 0x1001001001002008L,
+        0x8001000408001100L, 0x0101000802040100L, 0x4285001401000200L, 0x008180010020C080L,
+        0x0000228000400080L, 0x0810004000402000L, 0x0010008020008018L, 0x1400090021021000L,
+        0x820A808004000802L, 0x0404008002008004L, 0x0202008080020100L, 0x094402000C025181L,
+        0x0280400080008020L, 0x0200200040401000L, 0x0404482200108200L, 0x00081022000A0040L,
+        0x1000040080800800L, 0x0182000200058810L, 0x0000827400481021L, 0x0000008200091064L,
+        0x0040004020800089L, 0x648E024102002082L, 0x0000200080801000L, 0x001200419200200AL,
+        0x0430080080800400L, 0x0000040080800200L, 0x002201100400D802L, 0x5800404082000401L,
+        0x0000400080008020L, 0x0140028020018044L, 0x4004801204420020L, 0x080210030021000AL,
+        0x2204000408008080L, 0x020A000804020010L, 0x0100010002008080L, 0x2000440040820001L,
+        0x0000408000210100L, 0x4000810028420200L, 0x0A8020010043B100L, 0x0100201000090100L,
+        0x0001021048004500L, 0x0002020080040080L, 0x0048080102100400L, 0x00410000A2084100L,
+        0x0040110222004682L, 0x0802002100408012L, 0x0420040820401101L, 0x8040200805001001L,
+        0x0045000218001035L, 0x840A001001080482L, 0x0800420081300804L, 0x0400008100402412L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+        0x0002200800808083L, 0x082401020E120004L, 0x001000A208400000L, 0x4024052600949040L,
+        0x0002021100000101L, 0x00220802080C0000L, 0x000C014108210908L, 0x024A049080901001L,
+        0x0043C20411020210L, 0x002020213A248100L, 0x09224942040D0183L, 0x01000C4220802000L,
+        0x0041820211000400L, 0x3000320802080800L, 0x030084010402A000L, 0x0210004C04040200L,
+        0x0010014430220820L, 0x0002042008010904L, 0x08A0403008404040L, 0x0260202202004000L,
+        0x2004005211200800L, 0x08048060C8044000L, 0x004B003209012040L, 0x0460802042009004L,
+        0x2002080EC0110440L, 0x0018022004948800L, 0x0008404008060040L, 0x1821080001004300L,
+        0x0001020044008401L, 0x4010004040241008L, 0x0004040000A08404L, 0x000CB10082004200L,
+        0x6001100800112000L, 0x06181110A4148400L, 0x0004002480480204L, 0x1200400808608200L,
+        0x00A8020400001010L, 0xC220040020010090L, 0x00018A0080440C10L, 0x8002020040002401L,
+        0x180101109030C040L, 0x8010884108801000L, 0x0013420050048100L, 0x010021A018008101L,
+        0x8040080904440401L, 0x1042240804200A00L, 0x404802E082018400L, 0x0010008200480089L,
+        0x0004008404201228L, 0x090042280402000AL, 0x0248108888210800L, 0x0005800E05042404L,
+        0x08000808A1010030L, 0x0208A02202060A10L, 0x00C0481901461048L, 0x00221042418104A0L,
+        0x88084400808820C2L, 0x0000408448421040L, 0x0880200242009038L, 0x0C41020080208800L,
+        0x0000880520A24410L, 0x00001041C4080A21L, 0x0000295810108200L, 0x0011201A00460020L
+    };
+
+    private static final int[][] ROOK_STEPS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_STEPS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] KNIGHT_STEPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64]; // [color][square]
+    private static final long[][] BETWEEN = new long[64][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] SLIDER_TABLE;
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT[sq] = leaperAttacks(sq, KNIGHT_STEPS);
+            KING[sq] = leaperAttacks(sq, KING_STEPS);
+            PAWN[Color.WHITE.ordinal()][sq] = leaperAttacks(sq, new int[][]{{-1, -1}, {-1, 1}});
+            PAWN[Color.BLACK.ordinal()][sq] = leaperAttacks(sq, new int[][]{{1, -1}, {1, 1}});
+        }
+
+        int size = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            ROOK_MASKS[sq] = relevantOccupancy(sq, ROOK_STEPS);
+            ROOK_SHIFTS[sq] = 64 - Long.bitCount(ROOK_MASKS[sq]);
+            ROOK_OFFSETS[sq] = size;
+            size += 1 << Long.bitCount(ROOK_MASKS[sq]);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            BISHOP_MASKS[sq] = relevantOccupancy(sq, BISHOP_STEPS);
+            BISHOP_SHIFTS[sq] = 64 - Long.bitCount(BISHOP_MASKS[sq]);
+            BISHOP_OFFSETS[sq] = size;
+            size += 1 << Long.bitCount(BISHOP_MASKS[sq]);
+        }
+        SLIDER_TABLE = new long[size];
+        for (int sq = 0; sq < 64; sq++) {
+            fillSliderTable(sq, ROOK_MASKS[sq], ROOK_MAGICS[sq], ROOK_SHIFTS[sq], ROOK_OFFSETS[sq], ROOK_STEPS);
+            fillSliderTable(sq, BISHOP_MASKS[sq], BISHOP_MAGICS[sq], BISHOP_SHIFTS[sq], BISHOP_OFFSETS[sq], BISHOP_STEPS);
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int[] step : KING_STEPS) {
+                long ray = 0L;
+                int row = (from >>> 3) + step[0];
+                int col = (from & 7) + step[1];
+                while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                    BETWEEN[from][row * 8 + col] = ray;
+                    ray |= 1L << (row * 8 + col);
+                    row += step[0];
+                    col += step[1];
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knight(int sq) {
+        return KNIGHT[sq];
+    }
+
+    public static long king(int sq) {
+        return KING[sq];
+    }
+
+    // Squares attacked by a pawn of the given colour standing on sq.
+    public static long pawn(Color color, int sq) {
+        return PAWN[color.ordinal()][sq];
+    }
+
+    public static long rook(int sq, long occupied) {
+        return SLIDER_TABLE[ROOK_OFFSETS[sq] + (int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+
+    public static long bishop(int sq, long occupied) {
+        return SLIDER_TABLE[BISHOP_OFFSETS[sq] + (int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+    }
+
+    public static long queen(int sq, long occupied) {
+        return rook(sq, occupied) | bishop(sq, occupied);
+    }
+
+    // Squares strictly between a and b when they share a rank, file or diagonal; otherwise empty.
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    private static long leaperAttacks(int sq, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int row = (sq >>> 3) + step[0];
+            int col = (sq & 7) + step[1];
+            if (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                attacks |= 1L << (row * 8 + col);
+            }
+        }
+        return attacks;
+    }
+
+    // Ray squares whose occupancy can change the attack set; the last square of each ray never does.
+    private static long relevantOccupancy(int sq, int[][] steps) {
+        long mask = 0L;
+        for (int[] step : steps) {
+            int row = (sq >>> 3) + step[0];
+            int col = (sq & 7) + step[1];
+            while (row + step[0] >= 0 && row + step[0] < 8 && col + step[1] >= 0 && col + step[1] < 8) {
+                mask |= 1L << (row * 8 + col);
+                row += step[0];
+                col += step[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long rayAttacks(int sq, long occupied, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int row = (sq >>> 3) + step[0];
+            int col = (sq & 7) + step[1];
+            while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                long bit = 1L << (row * 8 + col);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += step[0];
+                col += step[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static void fillSliderTable(int sq, long mask, long magic, int shift, int offset, int[][] steps) {
+        boolean[] filled = new boolean[1 << (64 - shift)];
+        long subset = 0L;
+        do {
+            int index = (int) ((subset * magic) >>> shift);
+            long attacks = rayAttacks(sq, subset, steps);
+            if (filled[index] && SLIDER_TABLE[offset + index] != attacks) {
+                throw new IllegalStateException("Magic number collision on square " + sq);
+            }
+            filled[index] = true;
+            SLIDER_TABLE[offset + index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+    }
+}
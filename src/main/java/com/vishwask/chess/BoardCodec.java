@@ -0,0 +1,91 @@
+package com.vishwask.chess;
+
+import java.util.Base64;
+
+// Compact position encoding stored in Game.boardData; it holds everything a FEN string does. Layout
+// (version 2, 38 bytes before base64):
+//   byte 0       format version
+//   bytes 1-32   one nibble per square, a8 first, low nibble first; 0 = empty, otherwise Piece.index() + 1
+//   byte 33      bit 0 set when black is to move, bits 1-4 castling rights
+//   byte 34      en-passant square, or -1
+//   byte 35      halfmove clock, capped at 255
+//   bytes 36-37  fullmove number, big-endian
+// Version 1 data is the first 35 bytes without the clocks, which then read as 0 and 1.
+public final class BoardCodec {
+
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_CLOCKS = 1;
+    private static final int PLACEMENT_OFFSET = 1;
+    private static final int STATE_OFFSET = 33;
+    private static final int EN_PASSANT_OFFSET = 34;
+    private static final int HALFMOVE_OFFSET = 35;
+    private static final int FULLMOVE_OFFSET = 36;
+    private static final int LENGTH = 38;
+    private static final int LENGTH_WITHOUT_CLOCKS = 35;
+
+    private BoardCodec() {
+    }
+
+    public static String encode(ChessBoard board) {
+        return Base64.getEncoder().encodeToString(toBytes(board));
+    }
+
+    public static byte[] toBytes(ChessBoard board) {
+        byte[] data = new byte[LENGTH];
+        data[0] = VERSION;
+        for (int sq = 0; sq < 64; sq++) {
+            Piece piece = board.getPiece(sq >>> 3, sq & 7);
+            if (piece != null) {
+                data[PLACEMENT_OFFSET + (sq >>> 1)] |= (piece.index() + 1) << ((sq & 1) * 4);
+            }
+        }
+        int state = board.getSideToMove() == Color.BLACK ? 1 : 0;
+        data[STATE_OFFSET] = (byte) (state | (board.getCastlingRights() << 1));
+        data[EN_PASSANT_OFFSET] = (byte) board.getEnPassantSquare();
+        data[HALFMOVE_OFFSET] = (byte) Math.min(board.getHalfmoveClock(), 255);
+        int fullmove = Math.min(board.getFullmoveNumber(), 0xFFFF);
+        data[FULLMOVE_OFFSET] = (byte) (fullmove >>> 8);
+        data[FULLMOVE_OFFSET + 1] = (byte) fullmove;
+        return data;
+    }
+
+    public static ChessBoard decode(String encoded) {
+        ChessBoard board = new ChessBoard();
+        decodeInto(encoded, board);
+        return board;
+    }
+
+    // Overwrites the board's position; its undo stack is cleared.
+    public static void decodeInto(String encoded, ChessBoard board) {
+        byte[] data;
+        try {
+            data = Base64.getDecoder().decode(encoded);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Board data is not valid base64.", ex);
+        }
+        fromBytes(data, board);
+    }
+
+    public static void fromBytes(byte[] data, ChessBoard board) {
+        boolean withClocks = data != null && data.length == LENGTH && data[0] == VERSION;
+        if (!withClocks && (data == null || data.length != LENGTH_WITHOUT_CLOCKS || data[0] != VERSION_WITHOUT_CLOCKS)) {
+            throw new IllegalArgumentException("Unsupported board data.");
+        }
+        board.clearPieces();
+        for (int sq = 0; sq < 64; sq++) {
+            int code = (data[PLACEMENT_OFFSET + (sq >>> 1)] >>> ((sq & 1) * 4)) & 0xF;
+            if (code > 12) {
+                throw new IllegalArgumentException("Board data contains an unknown piece code " + code + ".");
+            }
+            if (code != 0) {
+                board.putPiece(sq, Piece.fromIndex(code - 1));
+            }
+        }
+        int state = data[STATE_OFFSET];
+        int enPassant = data[EN_PASSANT_OFFSET];
+        int halfmoves = withClocks ? data[HALFMOVE_OFFSET] & 0xFF : 0;
+        int fullmoves = withClocks ? ((data[FULLMOVE_OFFSET] & 0xFF) << 8) | (data[FULLMOVE_OFFSET + 1] & 0xFF) : 1;
+        board.restoreState((state & 1) != 0 ? Color.BLACK : Color.WHITE, (state >>> 1) & 0xF,
+                enPassant >= 0 && enPassant < 64 ? enPassant : -1, halfmoves, fullmoves);
+    }
+}
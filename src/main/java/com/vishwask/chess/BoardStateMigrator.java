@@ -0,0 +1,115 @@
+package com.vishwask.chess;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Converts games saved with the JSON board column to BoardCodec data in the background, a batch at a time,
+// so the conversion never holds up startup or a request. Games touched by a move are converted on save anyway.
+@Component
+public class BoardStateMigrator {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Value("${chess.board-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chess.board-migration.batch-size:200}")
+    private int batchSize;
+
+    @Value("${chess.board-migration.pause-millis:50}")
+    private long pauseMillis;
+
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private ExecutorService executor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "board-state-migrator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.submit(this::migrateAll);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    // Walks the legacy rows in id order until none are left; returns the number converted by this run.
+    public long migrateAll() {
+        long converted = 0;
+        long afterId = 0L;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Object[]> batch = gameRepository.findLegacyBoards(afterId, PageRequest.of(0, Math.max(batchSize, 1)));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Object[] row : batch) {
+                afterId = (Long) row[0];
+                if (migrate(afterId, (String) row[1], (Color) row[2])) {
+                    converted++;
+                }
+            }
+            if (pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return converted;
+    }
+
+    private boolean migrate(Long id, String json, Color currentTurn) {
+        try {
+            String boardData = BoardCodec.encode(parseLegacyBoard(json, currentTurn));
+            if (gameRepository.storeMigratedBoard(id, boardData) == 1) {
+                migrated.incrementAndGet();
+                return true;
+            }
+        } catch (Exception e) {
+            // Unreadable rows keep their JSON and are skipped; loading the game falls back to a fresh board.
+            failed.incrementAndGet();
+        }
+        return false;
+    }
+
+    // Rows written before boardData existed hold a JSON String[][] and rely on currentTurn for the side to move.
+    static ChessBoard parseLegacyBoard(String json, Color currentTurn) throws JsonProcessingException {
+        ChessBoard board = new ChessBoard(OBJECT_MAPPER.readValue(json, String[][].class));
+        board.setSideToMove(currentTurn != null ? currentTurn : Color.WHITE);
+        return board;
+    }
+
+    public long getMigratedCount() {
+        return migrated.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+}
@@ -1,202 +1,496 @@
 package com.vishwask.chess;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ChessBoard {
-    private Piece[][] board;
-    private boolean[] hasKingMoved;
-    private boolean[][] hasRookMoved;
-    private int[] lastPawnMove; // [row, col] of last double pawn move for en passant
-    private int[] lastMoveFrom;
-    private int[] lastMoveTo;
+    // Squares are numbered row * 8 + col, so bit 0 is a8 and bit 63 is h1, matching the row/col coordinates used elsewhere.
+
+    private static final int PIECE_TYPES = 6;
+    private static final PieceType[] PROMOTION_TYPES = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+    // Ranks 8 and 1 (rows 0 and 7).
+    private static final long PROMOTION_RANKS = 0xFFL | 0xFF00000000000000L;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    private static final int ALL_CASTLING = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+
+    // Castling rights that survive a move touching the square, either as origin or destination.
+    private static final int[] CASTLING_MASK = new int[64];
+
+    private static final int INITIAL_HISTORY_CAPACITY = 256;
+    // Positions more than a hundred plies back, past the fifty-move rule, can no longer repeat in a live game.
+    private static final int PRIOR_KEYS_CAPACITY = 100;
+
+    static {
+        java.util.Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[square(7, 4)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[square(7, 7)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[square(7, 0)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[square(0, 4)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[square(0, 7)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[square(0, 0)] &= ~BLACK_QUEENSIDE;
+    }
+
+    private Piece[] squares; // mailbox for O(1) piece lookup
+    private long[] pieceBitboards; // [color * 6 + type]
+    private long[] colorBitboards; // [color]
+    private long occupied;
+    private Color sideToMove;
+    private int castlingRights;
+    private int enPassantSquare; // square skipped by the last double pawn move, or -1
+    private int halfmoveClock; // plies since the last capture or pawn move
+    private int fullmoveNumber; // starts at 1, incremented after each black move
+    private int lastMoveFrom;
+    private int lastMoveTo;
     private Color lastMoverColor;
+    private long zobristKey;
+    // Running sums of PieceSquareTables over the pieces on the board, white minus black, and the game phase.
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+    private long[] pinRays; // allowed squares for each pinned piece, valid only while generating
+
+    // Undo stack, one slot per move made; grows only when a game outlives its capacity.
+    private int historySize;
+    private int[] historyMoves;
+    private long[] historyKeys;
+    private Piece[] historyMovedPieces;
+    private Piece[] historyCaptured;
+    private int[] historyCastlingRights;
+    private int[] historyEnPassant;
+    private int[] historyLastFrom;
+    private int[] historyLastTo;
+    private Color[] historyLastMover;
+    // The side to move before each move; makeMove accepts a move by either side, so it is not implied by the
+    // moved piece.
+    private Color[] historySideToMove;
+    private int[] historyHalfmoveClock;
+    private int[] historyFullmoveNumber;
+    // Keys of the positions played before the undo stack starts, oldest first, back to the last capture or
+    // pawn move. A copy gets them from its original so isRepetition still sees the game's earlier positions.
+    private long[] priorKeys;
+    private int priorKeyCount;
 
     public ChessBoard() {
-        board = new Piece[8][8];
-        hasKingMoved = new boolean[2]; // 0 white, 1 black
-        hasRookMoved = new boolean[2][2]; // [color][side: 0 queenside, 1 kingside]
-        lastPawnMove = new int[]{-1, -1};
-        lastMoveFrom = new int[]{-1, -1};
-        lastMoveTo = new int[]{-1, -1};
-        lastMoverColor = null;
+        initializeState();
         initializeBoard();
     }
 
+    private void initializeState() {
+        squares = new Piece[64];
+        pieceBitboards = new long[2 * PIECE_TYPES];
+        colorBitboards = new long[2];
+        occupied = 0L;
+        sideToMove = Color.WHITE;
+        castlingRights = ALL_CASTLING;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        lastMoveFrom = -1;
+        lastMoveTo = -1;
+        lastMoverColor = null;
+        zobristKey = Zobrist.CASTLING[ALL_CASTLING];
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        historySize = 0;
+        allocateHistory(INITIAL_HISTORY_CAPACITY);
+        priorKeys = new long[PRIOR_KEYS_CAPACITY];
+        priorKeyCount = 0;
+        pinRays = new long[64];
+    }
+
     private void initializeBoard() {
         // Place pawns
         for (int i = 0; i < 8; i++) {
-            board[1][i] = new Piece(PieceType.PAWN, Color.BLACK);
-            board[6][i] = new Piece(PieceType.PAWN, Color.WHITE);
+            putPiece(square(1, i), Piece.of(PieceType.PAWN, Color.BLACK));
+            putPiece(square(6, i), Piece.of(PieceType.PAWN, Color.WHITE));
         }
 
         // Place other pieces
         PieceType[] types = {PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP, PieceType.QUEEN, PieceType.KING, PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK};
         for (int i = 0; i < 8; i++) {
-            board[0][i] = new Piece(types[i], Color.BLACK);
-            board[7][i] = new Piece(types[i], Color.WHITE);
+            putPiece(square(0, i), Piece.of(types[i], Color.BLACK));
+            putPiece(square(7, i), Piece.of(types[i], Color.WHITE));
         }
     }
 
+    private void allocateHistory(int capacity) {
+        historyMoves = historyMoves == null ? new int[capacity] : java.util.Arrays.copyOf(historyMoves, capacity);
+        historyKeys = historyKeys == null ? new long[capacity] : java.util.Arrays.copyOf(historyKeys, capacity);
+        historyMovedPieces = historyMovedPieces == null ? new Piece[capacity] : java.util.Arrays.copyOf(historyMovedPieces, capacity);
+        historyCaptured = historyCaptured == null ? new Piece[capacity] : java.util.Arrays.copyOf(historyCaptured, capacity);
+        historyCastlingRights = historyCastlingRights == null ? new int[capacity] : java.util.Arrays.copyOf(historyCastlingRights, capacity);
+        historyEnPassant = historyEnPassant == null ? new int[capacity] : java.util.Arrays.copyOf(historyEnPassant, capacity);
+        historyLastFrom = historyLastFrom == null ? new int[capacity] : java.util.Arrays.copyOf(historyLastFrom, capacity);
+        historyLastTo = historyLastTo == null ? new int[capacity] : java.util.Arrays.copyOf(historyLastTo, capacity);
+        historyLastMover = historyLastMover == null ? new Color[capacity] : java.util.Arrays.copyOf(historyLastMover, capacity);
+        historySideToMove = historySideToMove == null ? new Color[capacity] : java.util.Arrays.copyOf(historySideToMove, capacity);
+        historyHalfmoveClock = historyHalfmoveClock == null ? new int[capacity] : java.util.Arrays.copyOf(historyHalfmoveClock, capacity);
+        historyFullmoveNumber = historyFullmoveNumber == null ? new int[capacity] : java.util.Arrays.copyOf(historyFullmoveNumber, capacity);
+    }
+
+    private static int square(int row, int col) {
+        return row * 8 + col;
+    }
+
+    private static int bitboardIndex(PieceType type, Color color) {
+        return color.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    void putPiece(int sq, Piece piece) {
+        long bit = 1L << sq;
+        int index = piece.index();
+        squares[sq] = piece;
+        zobristKey ^= Zobrist.PIECE_SQUARE[index][sq];
+        midgameScore += PieceSquareTables.MIDGAME[index][sq];
+        endgameScore += PieceSquareTables.ENDGAME[index][sq];
+        phase += PieceSquareTables.PHASE[index];
+        pieceBitboards[index] |= bit;
+        colorBitboards[piece.getColor().ordinal()] |= bit;
+        occupied |= bit;
+    }
+
+    private Piece removePiece(int sq) {
+        Piece piece = squares[sq];
+        if (piece != null) {
+            long bit = ~(1L << sq);
+            int index = piece.index();
+            squares[sq] = null;
+            zobristKey ^= Zobrist.PIECE_SQUARE[index][sq];
+            midgameScore -= PieceSquareTables.MIDGAME[index][sq];
+            endgameScore -= PieceSquareTables.ENDGAME[index][sq];
+            phase -= PieceSquareTables.PHASE[index];
+            pieceBitboards[index] &= bit;
+            colorBitboards[piece.getColor().ordinal()] &= bit;
+            occupied &= bit;
+        }
+        return piece;
+    }
+
+    private long pieces(PieceType type, Color color) {
+        return pieceBitboards[bitboardIndex(type, color)];
+    }
+
     public Piece getPiece(int row, int col) {
         if (row < 0 || row > 7 || col < 0 || col > 7) return null;
-        return board[row][col];
+        return squares[square(row, col)];
+    }
+
+    // Square-index and bitboard views for the search engine; squares are numbered as in Move.
+    public Piece getPieceAt(int sq) {
+        return squares[sq];
+    }
+
+    public long getPieces(PieceType type, Color color) {
+        return pieceBitboards[bitboardIndex(type, color)];
+    }
+
+    public long getPieces(Color color) {
+        return colorBitboards[color.ordinal()];
+    }
+
+    public long getOccupied() {
+        return occupied;
     }
 
     public boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol, Color currentTurn) {
         if (fromRow < 0 || fromRow > 7 || fromCol < 0 || fromCol > 7 || toRow < 0 || toRow > 7 || toCol < 0 || toCol > 7) {
             return false;
         }
-        Piece piece = board[fromRow][fromCol];
+        int from = square(fromRow, fromCol);
+        int to = square(toRow, toCol);
+        Piece piece = squares[from];
         if (piece == null || piece.getColor() != currentTurn) return false;
 
-        Piece target = board[toRow][toCol];
-        if (target != null && target.getColor() == piece.getColor()) return false;
-
         // Check if the basic move is valid (without considering check)
-        if (!isBasicMoveValid(fromRow, fromCol, toRow, toCol)) return false;
+        if ((pseudoLegalTargets(from) & (1L << to)) == 0) return false;
 
-        // Simulate the move to check if it leaves king in check
-        Piece capturedPiece = board[toRow][toCol];
-        Piece enPassantCaptured = null;
-        int enPassantRow = -1;
-        board[toRow][toCol] = piece;
-        board[fromRow][fromCol] = null;
+        return !leavesKingInCheck(from, to, piece);
+    }
 
-        int deltaRow = toRow - fromRow;
-        int deltaCol = toCol - fromCol;
+    // Evaluates the position after the move on local copies of the bitboards, so nothing has to be undone.
+    private boolean leavesKingInCheck(int from, int to, Piece piece) {
+        Color color = piece.getColor();
+        Color enemy = opposite(color);
+        long fromBit = 1L << from;
+        long toBit = 1L << to;
+        long removed = toBit;
+        long occ = (occupied & ~fromBit) | toBit;
 
-        // Handle special moves
-        boolean isEnPassant = false;
-        if (piece.getType() == PieceType.PAWN && Math.abs(toCol - fromCol) == 1 && capturedPiece == null) {
+        if (piece.getType() == PieceType.PAWN && (from & 7) != (to & 7) && squares[to] == null) {
             // En passant capture
-            enPassantRow = piece.getColor() == Color.WHITE ? toRow + 1 : toRow - 1;
-            enPassantCaptured = board[enPassantRow][toCol];
-            board[enPassantRow][toCol] = null;
-            isEnPassant = true;
+            long capturedBit = 1L << square(from >>> 3, to & 7);
+            removed |= capturedBit;
+            occ &= ~capturedBit;
         }
 
-        // Handle castling
-        boolean isCastling = false;
-        if (piece.getType() == PieceType.KING && Math.abs(deltaCol) == 2) {
-            isCastling = true;
-            int rookFromCol = deltaCol > 0 ? 7 : 0;
-            int rookToCol = deltaCol > 0 ? 5 : 3;
-            board[fromRow][rookToCol] = board[fromRow][rookFromCol];
-            board[fromRow][rookFromCol] = null;
+        if (piece.getType() == PieceType.KING && Math.abs((to & 7) - (from & 7)) == 2) {
+            int row = from >>> 3;
+            int rookFrom = square(row, (to & 7) == 6 ? 7 : 0);
+            int rookTo = square(row, (to & 7) == 6 ? 5 : 3);
+            occ = (occ & ~(1L << rookFrom)) | (1L << rookTo);
         }
 
-        // Check if the move leaves own king in check
-        boolean leavesKingInCheck = isInCheck(currentTurn);
-
-        // Undo the move
-        board[fromRow][fromCol] = piece;
-        board[toRow][toCol] = capturedPiece;
-
-        if (isEnPassant && enPassantCaptured != null && enPassantRow >= 0) {
-            board[enPassantRow][toCol] = enPassantCaptured;
-        }
-
-        if (isCastling) {
-            int rookFromCol = deltaCol > 0 ? 7 : 0;
-            int rookToCol = deltaCol > 0 ? 5 : 3;
-            board[fromRow][rookFromCol] = board[fromRow][rookToCol];
-            board[fromRow][rookToCol] = null;
+        long kings = piece.getType() == PieceType.KING ? toBit : pieces(PieceType.KING, color);
+        while (kings != 0) {
+            int kingSq = Long.numberOfTrailingZeros(kings);
+            kings &= kings - 1;
+            if ((attackersTo(kingSq, enemy, occ) & ~removed) != 0) {
+                return true;
+            }
         }
-
-        return !leavesKingInCheck;
+        return false;
     }
 
-    private boolean isBasicMoveValid(int fromRow, int fromCol, int toRow, int toCol) {
-        Piece piece = board[fromRow][fromCol];
-        if (piece == null) return false;
-
-        int deltaRow = toRow - fromRow;
-        int deltaCol = toCol - fromCol;
+    private long pseudoLegalTargets(int from) {
+        Piece piece = squares[from];
+        Color color = piece.getColor();
+        long own = colorBitboards[color.ordinal()];
+        long enemy = colorBitboards[opposite(color).ordinal()];
 
         switch (piece.getType()) {
             case PAWN:
-                return isValidPawnMove(fromRow, fromCol, toRow, toCol, piece.getColor());
+                return pawnTargets(from, color, enemy) | enPassantTargets(from, color);
             case ROOK:
-                return isValidRookMove(fromRow, fromCol, toRow, toCol);
+                return Attacks.rook(from, occupied) & ~own;
             case KNIGHT:
-                return isValidKnightMove(deltaRow, deltaCol);
+                return Attacks.knight(from) & ~own;
             case BISHOP:
-                return isValidBishopMove(fromRow, fromCol, toRow, toCol);
+                return Attacks.bishop(from, occupied) & ~own;
             case QUEEN:
-                return isValidQueenMove(fromRow, fromCol, toRow, toCol);
+                return Attacks.queen(from, occupied) & ~own;
             case KING:
-                return isValidKingMove(deltaRow, deltaCol) || isValidCastling(fromRow, fromCol, toRow, toCol, piece.getColor());
+                return (Attacks.king(from) & ~own) | castlingTargets(from, color);
         }
-        return false;
+        return 0L;
     }
 
-    private boolean isValidPawnMove(int fromRow, int fromCol, int toRow, int toCol, Color color) {
-        int deltaRow = toRow - fromRow;
-        int deltaCol = toCol - fromCol;
-        int direction = color == Color.WHITE ? -1 : 1;
-        int startRow = color == Color.WHITE ? 6 : 1;
+    private long pawnTargets(int from, Color color, long enemy) {
+        long fromBit = 1L << from;
+        long empty = ~occupied;
+        long targets;
+        if (color == Color.WHITE) {
+            long single = (fromBit >>> 8) & empty;
+            targets = single;
+            if ((from >>> 3) == 6) {
+                targets |= (single >>> 8) & empty;
+            }
+        } else {
+            long single = (fromBit << 8) & empty;
+            targets = single;
+            if ((from >>> 3) == 1) {
+                targets |= (single << 8) & empty;
+            }
+        }
+        return targets | (Attacks.pawn(color, from) & enemy);
+    }
 
-        if (deltaCol == 0 && board[toRow][toCol] == null) {
-            if (deltaRow == direction) return true;
-            if (fromRow == startRow && deltaRow == 2 * direction && board[fromRow + direction][fromCol] == null) return true;
-        } else if (Math.abs(deltaCol) == 1 && deltaRow == direction && board[toRow][toCol] != null && board[toRow][toCol].getColor() != color) {
-            return true; // capture
-        } else if (Math.abs(deltaCol) == 1 && deltaRow == direction && board[toRow][toCol] == null && lastPawnMove[0] == fromRow && lastPawnMove[1] == toCol) {
-            return true; // en passant
+    private long enPassantTargets(int from, Color color) {
+        if (enPassantSquare < 0 || (enPassantSquare >>> 3) != (color == Color.WHITE ? 2 : 5)) {
+            return 0L;
         }
-        return false;
+        return Attacks.pawn(color, from) & ~occupied & (1L << enPassantSquare);
     }
 
-    private boolean isValidRookMove(int fromRow, int fromCol, int toRow, int toCol) {
-        if (fromRow != toRow && fromCol != toCol) return false;
-        return isPathClear(fromRow, fromCol, toRow, toCol);
+    private long castlingTargets(int from, Color color) {
+        int row = color == Color.WHITE ? 7 : 0;
+        int kingside = color == Color.WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = color == Color.WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        if ((castlingRights & (kingside | queenside)) == 0 || from != square(row, 4)) return 0L;
+        long rooks = pieces(PieceType.ROOK, color);
+        long targets = 0L;
+
+        // Kingside
+        if ((castlingRights & kingside) != 0 && (rooks & (1L << square(row, 7))) != 0
+                && (occupied & (3L << square(row, 5))) == 0
+                && !isSquareUnderAttack(square(row, 4), color) && !isSquareUnderAttack(square(row, 5), color) && !isSquareUnderAttack(square(row, 6), color)) {
+            targets |= 1L << square(row, 6);
+        }
+        // Queenside
+        if ((castlingRights & queenside) != 0 && (rooks & (1L << square(row, 0))) != 0
+                && (occupied & (7L << square(row, 1))) == 0
+                && !isSquareUnderAttack(square(row, 4), color) && !isSquareUnderAttack(square(row, 3), color) && !isSquareUnderAttack(square(row, 2), color)) {
+            targets |= 1L << square(row, 2);
+        }
+        return targets;
     }
 
-    private boolean isValidBishopMove(int fromRow, int fromCol, int toRow, int toCol) {
-        if (Math.abs(toRow - fromRow) != Math.abs(toCol - fromCol)) return false;
-        return isPathClear(fromRow, fromCol, toRow, toCol);
+    private static Color opposite(Color color) {
+        return color == Color.WHITE ? Color.BLACK : Color.WHITE;
     }
 
-    private boolean isValidQueenMove(int fromRow, int fromCol, int toRow, int toCol) {
-        return isValidRookMove(fromRow, fromCol, toRow, toCol) || isValidBishopMove(fromRow, fromCol, toRow, toCol);
+    private long attackersTo(int sq, Color attackingColor, long occ) {
+        long queens = pieces(PieceType.QUEEN, attackingColor);
+        return (Attacks.pawn(opposite(attackingColor), sq) & pieces(PieceType.PAWN, attackingColor))
+                | (Attacks.knight(sq) & pieces(PieceType.KNIGHT, attackingColor))
+                | (Attacks.king(sq) & pieces(PieceType.KING, attackingColor))
+                | (Attacks.rook(sq, occ) & (pieces(PieceType.ROOK, attackingColor) | queens))
+                | (Attacks.bishop(sq, occ) & (pieces(PieceType.BISHOP, attackingColor) | queens));
     }
 
-    private boolean isValidKingMove(int deltaRow, int deltaCol) {
-        return Math.abs(deltaRow) <= 1 && Math.abs(deltaCol) <= 1 && (deltaRow != 0 || deltaCol != 0);
+    // Fills the list with every legal move for the given side and returns the count. Moves that would leave
+    // the king in check are excluded up front with check and pin masks instead of being simulated one by one.
+    public int generateLegalMoves(Color side, MoveList moves) {
+        return generateLegal(side, moves, false);
     }
 
-    private boolean isValidKnightMove(int deltaRow, int deltaCol) {
-        return (Math.abs(deltaRow) == 2 && Math.abs(deltaCol) == 1) || (Math.abs(deltaRow) == 1 && Math.abs(deltaCol) == 2);
+    // Like generateLegalMoves, restricted to captures (en passant included) and promotions.
+    public int generateLegalCaptures(Color side, MoveList moves) {
+        return generateLegal(side, moves, true);
     }
 
-    private boolean isValidCastling(int fromRow, int fromCol, int toRow, int toCol, Color color) {
-        if (fromRow != toRow || hasKingMoved[color.ordinal()]) return false;
-        int row = color == Color.WHITE ? 7 : 0;
-        if (fromRow != row || fromCol != 4) return false;
+    private int generateLegal(Color side, MoveList moves, boolean tacticalOnly) {
+        moves.clear();
+        long kings = pieces(PieceType.KING, side);
+        if (Long.bitCount(kings) != 1) {
+            // Puzzle setups may lack a king; fall back to testing every pseudo-legal move.
+            generateFilteredMoves(side, moves);
+            if (tacticalOnly) {
+                removeQuietMoves(moves);
+            }
+            return moves.size();
+        }
 
-        // Kingside
-        if (toCol == 6 && !hasRookMoved[color.ordinal()][1] && board[row][5] == null && board[row][6] == null) {
-            return !isSquareUnderAttack(row, 4, color) && !isSquareUnderAttack(row, 5, color) && !isSquareUnderAttack(row, 6, color);
+        Color enemy = opposite(side);
+        long own = colorBitboards[side.ordinal()];
+        long enemyPieces = colorBitboards[enemy.ordinal()];
+        long pieceMask = tacticalOnly ? enemyPieces : -1L;
+        long pawnMask = tacticalOnly ? enemyPieces | PROMOTION_RANKS : -1L;
+        int kingSq = Long.numberOfTrailingZeros(kings);
+
+        long occWithoutKing = occupied & ~kings;
+        long kingTargets = Attacks.king(kingSq) & ~own & pieceMask;
+        while (kingTargets != 0) {
+            int to = Long.numberOfTrailingZeros(kingTargets);
+            kingTargets &= kingTargets - 1;
+            if (attackersTo(to, enemy, occWithoutKing) == 0) {
+                addMove(kingSq, to, PieceType.KING, moves);
+            }
         }
-        // Queenside
-        if (toCol == 2 && !hasRookMoved[color.ordinal()][0] && board[row][1] == null && board[row][2] == null && board[row][3] == null) {
-            return !isSquareUnderAttack(row, 4, color) && !isSquareUnderAttack(row, 3, color) && !isSquareUnderAttack(row, 2, color);
+
+        long checkers = attackersTo(kingSq, enemy, occupied);
+        if (Long.bitCount(checkers) > 1) {
+            return moves.size();
         }
-        return false;
+
+        long checkMask = -1L;
+        if (checkers != 0) {
+            int checkerSq = Long.numberOfTrailingZeros(checkers);
+            checkMask = checkers | Attacks.between(kingSq, checkerSq);
+        } else if (!tacticalOnly) {
+            long castles = castlingTargets(kingSq, side);
+            while (castles != 0) {
+                int to = Long.numberOfTrailingZeros(castles);
+                castles &= castles - 1;
+                addMove(kingSq, to, PieceType.KING, moves);
+            }
+        }
+
+        long pinned = findPinnedPieces(kingSq, side);
+        long movers = own & ~kings;
+        while (movers != 0) {
+            int from = Long.numberOfTrailingZeros(movers);
+            movers &= movers - 1;
+            PieceType type = squares[from].getType();
+            long targets = type == PieceType.PAWN
+                    ? pawnTargets(from, side, enemyPieces) & pawnMask
+                    : pseudoLegalTargets(from) & pieceMask;
+            targets &= checkMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= pinRays[from];
+            }
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                addMove(from, to, type, moves);
+            }
+            if (type == PieceType.PAWN) {
+                // En passant can uncover a rank attack on the king, so it is verified explicitly.
+                long epTargets = enPassantTargets(from, side);
+                if (epTargets != 0) {
+                    int to = Long.numberOfTrailingZeros(epTargets);
+                    if (!leavesKingInCheck(from, to, squares[from])) {
+                        moves.add(Move.encode(from, to, Move.FLAG_CAPTURE | Move.FLAG_EN_PASSANT));
+                    }
+                }
+            }
+        }
+        return moves.size();
     }
 
-    private boolean isPathClear(int fromRow, int fromCol, int toRow, int toCol) {
-        int stepRow = Integer.compare(toRow, fromRow);
-        int stepCol = Integer.compare(toCol, fromCol);
-        int currentRow = fromRow + stepRow;
-        int currentCol = fromCol + stepCol;
-        while (currentRow != toRow || currentCol != toCol) {
-            if (board[currentRow][currentCol] != null) return false;
-            currentRow += stepRow;
-            currentCol += stepCol;
+    private static void removeQuietMoves(MoveList moves) {
+        int kept = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.isCapture(move) || Move.isPromotion(move)) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+    }
+
+    private long findPinnedPieces(int kingSq, Color side) {
+        Color enemy = opposite(side);
+        long own = colorBitboards[side.ordinal()];
+        long enemyOnly = colorBitboards[enemy.ordinal()];
+        long queens = pieces(PieceType.QUEEN, enemy);
+        long snipers = (Attacks.rook(kingSq, enemyOnly) & (pieces(PieceType.ROOK, enemy) | queens))
+                | (Attacks.bishop(kingSq, enemyOnly) & (pieces(PieceType.BISHOP, enemy) | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniperSq = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long between = Attacks.between(kingSq, sniperSq);
+            long blockers = between & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+                pinRays[Long.numberOfTrailingZeros(blockers)] = between | (1L << sniperSq);
+            }
+        }
+        return pinned;
+    }
+
+    private void generateFilteredMoves(Color side, MoveList moves) {
+        long movers = colorBitboards[side.ordinal()];
+        while (movers != 0) {
+            int from = Long.numberOfTrailingZeros(movers);
+            movers &= movers - 1;
+            Piece piece = squares[from];
+            long targets = pseudoLegalTargets(from);
+            long epTargets = piece.getType() == PieceType.PAWN ? enPassantTargets(from, side) : 0L;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (leavesKingInCheck(from, to, piece)) {
+                    continue;
+                }
+                if ((epTargets & (1L << to)) != 0) {
+                    moves.add(Move.encode(from, to, Move.FLAG_CAPTURE | Move.FLAG_EN_PASSANT));
+                } else {
+                    addMove(from, to, piece.getType(), moves);
+                }
+            }
         }
-        return true;
+    }
+
+    private void addMove(int from, int to, PieceType type, MoveList moves) {
+        int flags = squares[to] != null ? Move.FLAG_CAPTURE : 0;
+        if (type == PieceType.PAWN) {
+            int toRow = to >>> 3;
+            if (toRow == 0 || toRow == 7) {
+                for (PieceType promotion : PROMOTION_TYPES) {
+                    moves.add(Move.encode(from, to, promotion, flags));
+                }
+                return;
+            }
+            if (Math.abs(toRow - (from >>> 3)) == 2) {
+                flags |= Move.FLAG_DOUBLE_PUSH;
+            }
+        } else if (type == PieceType.KING && Math.abs((to & 7) - (from & 7)) == 2) {
+            flags |= Move.FLAG_CASTLE;
+        }
+        moves.add(Move.encode(from, to, flags));
     }
 
     public boolean movePiece(int fromRow, int fromCol, int toRow, int toCol) {
@@ -207,7 +501,9 @@ public class ChessBoard {
         if (fromRow < 0 || fromRow > 7 || fromCol < 0 || fromCol > 7 || toRow < 0 || toRow > 7 || toCol < 0 || toCol > 7) {
             return false;
         }
-        Piece piece = board[fromRow][fromCol];
+        int from = square(fromRow, fromCol);
+        int to = square(toRow, toCol);
+        Piece piece = squares[from];
         if (piece == null) {
             return false;
         }
@@ -215,51 +511,306 @@ public class ChessBoard {
             return false;
         }
 
+        makeMove(encodeMove(from, to, piece.getType(), promotionChoice));
+        return true;
+    }
+
+    // Expands a compact move (see Move.compact) to the generator's packed form for the side owning the moved
+    // piece, or returns Move.NONE if it is not legal in this position.
+    public int findLegalMove(int compactMove) {
+        Piece piece = squares[Move.from(compactMove)];
+        if (piece == null) {
+            return Move.NONE;
+        }
+        try (MoveList moves = MoveList.acquire()) {
+            int count = generateLegalMoves(piece.getColor(), moves);
+            for (int i = 0; i < count; i++) {
+                int move = moves.get(i);
+                if (Move.compact(move) == compactMove) {
+                    return move;
+                }
+            }
+        }
+        return Move.NONE;
+    }
+
+    public int findLegalMove(int fromRow, int fromCol, int toRow, int toCol, PieceType promotion) {
+        if (fromRow < 0 || fromRow > 7 || fromCol < 0 || fromCol > 7 || toRow < 0 || toRow > 7 || toCol < 0 || toCol > 7) {
+            return Move.NONE;
+        }
+        return findLegalMove(Move.compact(fromRow, fromCol, toRow, toCol, promotion));
+    }
+
+    private int encodeMove(int from, int to, PieceType type, PieceType promotionChoice) {
+        int flags = squares[to] != null ? Move.FLAG_CAPTURE : 0;
+        if (type == PieceType.PAWN) {
+            if ((from & 7) != (to & 7) && squares[to] == null) {
+                flags |= Move.FLAG_CAPTURE | Move.FLAG_EN_PASSANT;
+            }
+            if (Math.abs((to >>> 3) - (from >>> 3)) == 2) {
+                flags |= Move.FLAG_DOUBLE_PUSH;
+            }
+            if ((to >>> 3) == 0 || (to >>> 3) == 7) {
+                return Move.encode(from, to, determinePromotionChoice(promotionChoice), flags);
+            }
+        } else if (type == PieceType.KING && Math.abs((to & 7) - (from & 7)) == 2) {
+            flags |= Move.FLAG_CASTLE;
+        }
+        return Move.encode(from, to, flags);
+    }
+
+    // Plays a move produced by generateLegalMoves without re-validating it. Every call must be paired with
+    // unmakeMove, which restores the position from the undo stack without allocating.
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece piece = squares[from];
         Color color = piece.getColor();
 
-        // Handle en passant
-        if (piece.getType() == PieceType.PAWN && Math.abs(toCol - fromCol) == 1 && board[toRow][toCol] == null) {
-            board[fromRow][toCol] = null;
+        if (historySize == historyMoves.length) {
+            allocateHistory(historyMoves.length * 2);
+        }
+        int slot = historySize++;
+        historyMoves[slot] = move;
+        historyKeys[slot] = zobristKey;
+        historyMovedPieces[slot] = piece;
+        historyCastlingRights[slot] = castlingRights;
+        historyEnPassant[slot] = enPassantSquare;
+        historyLastFrom[slot] = lastMoveFrom;
+        historyLastTo[slot] = lastMoveTo;
+        historyLastMover[slot] = lastMoverColor;
+        historySideToMove[slot] = sideToMove;
+        historyHalfmoveClock[slot] = halfmoveClock;
+        historyFullmoveNumber[slot] = fullmoveNumber;
+
+        if (Move.isEnPassant(move)) {
+            historyCaptured[slot] = removePiece(square(from >>> 3, to & 7));
+        } else {
+            historyCaptured[slot] = removePiece(to);
+        }
+        removePiece(from);
+
+        PieceType promotion = Move.promotion(move);
+        putPiece(to, promotion != null ? Piece.of(promotion, color) : piece);
+
+        if (Move.isCastle(move)) {
+            int row = from >>> 3;
+            boolean kingside = (to & 7) == 6;
+            putPiece(square(row, kingside ? 5 : 3), removePiece(square(row, kingside ? 7 : 0)));
         }
 
-        // Handle castling
-        if (piece.getType() == PieceType.KING && Math.abs(toCol - fromCol) == 2) {
-            int rookFromCol = toCol == 6 ? 7 : 0;
-            int rookToCol = toCol == 6 ? 5 : 3;
-            board[toRow][rookToCol] = board[toRow][rookFromCol];
-            board[toRow][rookFromCol] = null;
+        int newRights = castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to];
+        zobristKey ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.CASTLING[newRights] ^ enPassantKey();
+        castlingRights = newRights;
+        enPassantSquare = -1;
+        if (Move.isDoublePush(move)) {
+            int skipped = (from + to) >>> 1;
+            // Only record the square when a pawn can actually take, so transpositions hash identically.
+            if ((Attacks.pawn(color, skipped) & pieces(PieceType.PAWN, opposite(color))) != 0) {
+                enPassantSquare = skipped;
+                zobristKey ^= enPassantKey();
+            }
+        }
+        halfmoveClock = piece.getType() == PieceType.PAWN || historyCaptured[slot] != null ? 0 : halfmoveClock + 1;
+        if (color == Color.BLACK) {
+            fullmoveNumber++;
         }
+        lastMoveFrom = from;
+        lastMoveTo = to;
+        lastMoverColor = color;
+        if (sideToMove != opposite(color)) {
+            zobristKey ^= Zobrist.BLACK_TO_MOVE;
+        }
+        sideToMove = opposite(color);
+        assert evaluationMatchesRecomputation() : "Evaluation accumulators out of sync after " + Move.toString(move);
+    }
+
+    // Passes the turn without moving, for null-move pruning; undone by unmakeMove like any other move. The
+    // halfmove clock restarts so positions before the pass never count as repetitions of those after it.
+    public void makeNullMove() {
+        if (historySize == historyMoves.length) {
+            allocateHistory(historyMoves.length * 2);
+        }
+        int slot = historySize++;
+        historyMoves[slot] = Move.NONE;
+        historyKeys[slot] = zobristKey;
+        historyMovedPieces[slot] = null;
+        historyCastlingRights[slot] = castlingRights;
+        historyEnPassant[slot] = enPassantSquare;
+        historyLastFrom[slot] = lastMoveFrom;
+        historyLastTo[slot] = lastMoveTo;
+        historyLastMover[slot] = lastMoverColor;
+        historySideToMove[slot] = sideToMove;
+        historyHalfmoveClock[slot] = halfmoveClock;
+        historyFullmoveNumber[slot] = fullmoveNumber;
+
+        zobristKey ^= enPassantKey() ^ Zobrist.BLACK_TO_MOVE;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        if (sideToMove == Color.BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = opposite(sideToMove);
+    }
+
+    private long enPassantKey() {
+        return enPassantSquare >= 0 ? Zobrist.EN_PASSANT_FILE[enPassantSquare & 7] : 0L;
+    }
+
+    // Material and piece-square sums, white minus black, kept up to date by every piece placement.
+    public int getMidgameScore() {
+        return midgameScore;
+    }
 
-        board[toRow][toCol] = piece;
-        board[fromRow][fromCol] = null;
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    // 0 with only kings and pawns left, PieceSquareTables.MAX_PHASE or more with all pieces on the board.
+    public int getPhase() {
+        return phase;
+    }
 
-        if (piece.getType() == PieceType.PAWN && (toRow == 0 || toRow == 7)) {
-            PieceType promoteTo = determinePromotionChoice(promotionChoice);
-            board[toRow][toCol] = new Piece(promoteTo, color);
+    // Debug check that the accumulators agree with a full scan of the board. makeMove and unmakeMove assert
+    // it, so it runs on every move whenever assertions are enabled, as they are in the tests.
+    public boolean evaluationMatchesRecomputation() {
+        int midgame = 0;
+        int endgame = 0;
+        int total = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            Piece piece = squares[sq];
+            if (piece != null) {
+                midgame += PieceSquareTables.MIDGAME[piece.index()][sq];
+                endgame += PieceSquareTables.ENDGAME[piece.index()][sq];
+                total += PieceSquareTables.PHASE[piece.index()];
+            }
+        }
+        return midgame == midgameScore && endgame == endgameScore && total == phase;
+    }
+
+    // Full recomputation of the incrementally maintained key; used after bulk edits and to cross-check.
+    public long computeZobristKey() {
+        long key = 0L;
+        for (int index = 0; index < pieceBitboards.length; index++) {
+            long bits = pieceBitboards[index];
+            while (bits != 0) {
+                key ^= Zobrist.PIECE_SQUARE[index][Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+        }
+        if (sideToMove == Color.BLACK) {
+            key ^= Zobrist.BLACK_TO_MOVE;
         }
+        return key ^ Zobrist.CASTLING[castlingRights] ^ enPassantKey();
+    }
+
+    public long getZobristKey() {
+        return zobristKey;
+    }
 
-        if (piece.getType() == PieceType.KING) {
-            hasKingMoved[color.ordinal()] = true;
-        } else if (piece.getType() == PieceType.ROOK) {
-            if (fromCol == 0) {
-                hasRookMoved[color.ordinal()][0] = true;
+    // True when the current position already occurred since the last capture or pawn move, as far back as
+    // this board's undo stack and the history copied from its original reach.
+    public boolean isRepetition() {
+        for (int back = 4; back <= halfmoveClock; back += 2) {
+            int slot = historySize - back;
+            long key;
+            if (slot >= 0) {
+                key = historyKeys[slot];
+            } else if (priorKeyCount + slot >= 0) {
+                key = priorKeys[priorKeyCount + slot];
+            } else {
+                return false;
             }
-            if (fromCol == 7) {
-                hasRookMoved[color.ordinal()][1] = true;
+            if (key == zobristKey) {
+                return true;
             }
         }
+        return false;
+    }
 
-        if (piece.getType() == PieceType.PAWN && Math.abs(toRow - fromRow) == 2) {
-            lastPawnMove = new int[]{toRow, toCol};
-        } else {
-            lastPawnMove = new int[]{-1, -1};
+    public void unmakeMove() {
+        if (historySize == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        int slot = --historySize;
+        int move = historyMoves[slot];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece piece = historyMovedPieces[slot];
+        if (piece == null) {
+            undoNullMove(slot);
+            return;
         }
 
-        lastMoveFrom = new int[]{fromRow, fromCol};
-        lastMoveTo = new int[]{toRow, toCol};
-        lastMoverColor = color;
+        removePiece(to);
+        putPiece(from, piece);
 
-        return true;
+        if (Move.isCastle(move)) {
+            int row = from >>> 3;
+            boolean kingside = (to & 7) == 6;
+            putPiece(square(row, kingside ? 7 : 0), removePiece(square(row, kingside ? 5 : 3)));
+        }
+
+        Piece captured = historyCaptured[slot];
+        if (captured != null) {
+            putPiece(Move.isEnPassant(move) ? square(from >>> 3, to & 7) : to, captured);
+            historyCaptured[slot] = null;
+        }
+        historyMovedPieces[slot] = null;
+
+        castlingRights = historyCastlingRights[slot];
+        enPassantSquare = historyEnPassant[slot];
+        lastMoveFrom = historyLastFrom[slot];
+        lastMoveTo = historyLastTo[slot];
+        lastMoverColor = historyLastMover[slot];
+        halfmoveClock = historyHalfmoveClock[slot];
+        fullmoveNumber = historyFullmoveNumber[slot];
+        sideToMove = historySideToMove[slot];
+        zobristKey = historyKeys[slot];
+        assert evaluationMatchesRecomputation() : "Evaluation accumulators out of sync after undoing " + Move.toString(move);
+    }
+
+    private void undoNullMove(int slot) {
+        castlingRights = historyCastlingRights[slot];
+        enPassantSquare = historyEnPassant[slot];
+        halfmoveClock = historyHalfmoveClock[slot];
+        fullmoveNumber = historyFullmoveNumber[slot];
+        sideToMove = historySideToMove[slot];
+        zobristKey = historyKeys[slot];
+    }
+
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(Color sideToMove) {
+        if (sideToMove != null && sideToMove != this.sideToMove) {
+            zobristKey ^= Zobrist.BLACK_TO_MOVE;
+            this.sideToMove = sideToMove;
+        }
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    // Rights whose king or rook is no longer on its home square are dropped.
+    public void setCastlingRights(int rights) {
+        int allowed = rights & castlingRightsAllowedByPlacement();
+        zobristKey ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.CASTLING[allowed];
+        castlingRights = allowed;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
     }
 
     private PieceType determinePromotionChoice(PieceType requested) {
@@ -278,144 +829,108 @@ public class ChessBoard {
     }
 
     public int[] getLastMoveFrom() {
-        return lastMoveFrom == null ? null : lastMoveFrom.clone();
+        return toCoordinates(lastMoveFrom);
     }
 
     public int[] getLastMoveTo() {
-        return lastMoveTo == null ? null : lastMoveTo.clone();
+        return toCoordinates(lastMoveTo);
+    }
+
+    private static int[] toCoordinates(int sq) {
+        return sq < 0 ? new int[]{-1, -1} : new int[]{sq >>> 3, sq & 7};
     }
 
     public Color getLastMoverColor() {
         return lastMoverColor;
     }
+
     public boolean isInCheck(Color color) {
-        int kingRow = -1, kingCol = -1;
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Piece piece = board[i][j];
-                if (piece != null && piece.getType() == PieceType.KING && piece.getColor() == color) {
-                    kingRow = i;
-                    kingCol = j;
-                    break;
-                }
-            }
-        }
-        if (kingRow == -1 || kingCol == -1) {
+        long kings = pieces(PieceType.KING, color);
+        if (kings == 0) {
             return false;
         }
-        return isSquareUnderAttack(kingRow, kingCol, color);
+        return isSquareUnderAttack(Long.numberOfTrailingZeros(kings), color);
     }
 
     public boolean hasKing(Color color) {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Piece piece = board[i][j];
-                if (piece != null && piece.getType() == PieceType.KING && piece.getColor() == color) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return pieces(PieceType.KING, color) != 0;
     }
 
-    private boolean isSquareUnderAttack(int row, int col, Color defendingColor) {
-        if (row < 0 || row > 7 || col < 0 || col > 7) {
-            return false;
-        }
-        Color attackingColor = defendingColor == Color.WHITE ? Color.BLACK : Color.WHITE;
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Piece piece = board[i][j];
-                if (piece != null && piece.getColor() == attackingColor) {
-                    if (isBasicMoveValid(i, j, row, col)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+    private boolean isSquareUnderAttack(int sq, Color defendingColor) {
+        return attackersTo(sq, opposite(defendingColor), occupied) != 0;
     }
 
     public boolean isCheckmate(Color color) {
         if (!isInCheck(color)) return false;
-        // Check if any legal move exists (isValidMove now includes check validation)
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                Piece piece = board[fromRow][fromCol];
-                if (piece != null && piece.getColor() == color) {
-                    for (int toRow = 0; toRow < 8; toRow++) {
-                        for (int toCol = 0; toCol < 8; toCol++) {
-                            if (isValidMove(fromRow, fromCol, toRow, toCol, color)) {
-                                return false; // Found a legal move
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return true; // No legal moves found, it's checkmate
+        return !hasLegalMove(color); // No legal moves found, it's checkmate
     }
 
     public boolean isStalemate(Color color) {
         if (isInCheck(color)) return false;
-        // Check if any legal move exists
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                Piece piece = board[fromRow][fromCol];
-                if (piece != null && piece.getColor() == color) {
-                    for (int toRow = 0; toRow < 8; toRow++) {
-                        for (int toCol = 0; toCol < 8; toCol++) {
-                            if (isValidMove(fromRow, fromCol, toRow, toCol, color)) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            }
+        return !hasLegalMove(color);
+    }
+
+    private boolean hasLegalMove(Color color) {
+        try (MoveList moves = MoveList.acquire()) {
+            return generateLegalMoves(color, moves) > 0;
         }
-        return true;
     }
+
     public String[][] getBoardState() {
         String[][] state = new String[8][8];
         for (int i = 0; i < 8; i++) {
             for (int j = 0; j < 8; j++) {
-                if (board[i][j] != null) {
-                    state[i][j] = getUnicodeSymbol(board[i][j]);
-                } else {
-                    state[i][j] = "";
-                }
+                Piece piece = squares[square(i, j)];
+                state[i][j] = piece != null ? piece.getSymbol() : "";
             }
         }
         return state;
     }
 
-    private String getUnicodeSymbol(Piece piece) {
-        boolean isWhite = piece.getColor() == Color.WHITE;
-        switch (piece.getType()) {
-            case KING: return isWhite ? "♔" : "♚";
-            case QUEEN: return isWhite ? "♕" : "♛";
-            case ROOK: return isWhite ? "♖" : "♜";
-            case BISHOP: return isWhite ? "♗" : "♝";
-            case KNIGHT: return isWhite ? "♘" : "♞";
-            case PAWN: return isWhite ? "♙" : "♟";
-            default: return "";
-        }
-    }
-
+    // Rebuilds the position in place. Unicode symbols resolve through a table lookup to the shared Piece
+    // instances, so restoring a stored game allocates nothing.
     public void setBoardState(String[][] state) {
+        clearPieces();
         for (int i = 0; i < 8; i++) {
             for (int j = 0; j < 8; j++) {
                 if (!state[i][j].isEmpty()) {
-                    board[i][j] = parseSymbol(state[i][j]);
-                } else {
-                    board[i][j] = null;
+                    Piece piece = parseSymbol(state[i][j]);
+                    if (piece != null) {
+                        putPiece(square(i, j), piece);
+                    }
                 }
             }
         }
+        // The grid carries no castling history, so keep only the rights the placement still allows.
+        setCastlingRights(castlingRights);
+    }
+
+    void clearPieces() {
+        historySize = 0;
+        priorKeyCount = 0;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        lastMoveFrom = -1;
+        lastMoveTo = -1;
+        lastMoverColor = null;
+        java.util.Arrays.fill(squares, null);
+        java.util.Arrays.fill(pieceBitboards, 0L);
+        colorBitboards[0] = 0L;
+        colorBitboards[1] = 0L;
+        occupied = 0L;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        zobristKey = computeZobristKey();
     }
 
     // Supports both legacy "TYPE,COLOR" strings and current Unicode symbols.
     private Piece parseSymbol(String symbol) {
+        Piece piece = Piece.fromSymbol(symbol);
+        if (piece != null) {
+            return piece;
+        }
         // Legacy format: "ROOK,WHITE"
         if (symbol.contains(",")) {
             String[] parts = symbol.split(",");
@@ -423,61 +938,217 @@ public class ChessBoard {
                 try {
                     PieceType type = PieceType.valueOf(parts[0]);
                     Color color = Color.valueOf(parts[1]);
-                    return new Piece(type, color);
+                    return Piece.of(type, color);
                 } catch (IllegalArgumentException ex) {
-                    // Fallback to Unicode handling below
+                    // Not a recognised piece
                 }
             }
         }
-
-        switch (symbol) {
-            case "♔": return new Piece(PieceType.KING, Color.WHITE);
-            case "♚": return new Piece(PieceType.KING, Color.BLACK);
-            case "♕": return new Piece(PieceType.QUEEN, Color.WHITE);
-            case "♛": return new Piece(PieceType.QUEEN, Color.BLACK);
-            case "♖": return new Piece(PieceType.ROOK, Color.WHITE);
-            case "♜": return new Piece(PieceType.ROOK, Color.BLACK);
-            case "♗": return new Piece(PieceType.BISHOP, Color.WHITE);
-            case "♝": return new Piece(PieceType.BISHOP, Color.BLACK);
-            case "♘": return new Piece(PieceType.KNIGHT, Color.WHITE);
-            case "♞": return new Piece(PieceType.KNIGHT, Color.BLACK);
-            case "♙": return new Piece(PieceType.PAWN, Color.WHITE);
-            case "♟": return new Piece(PieceType.PAWN, Color.BLACK);
-            default: return null;
-        }
+        return null;
     }
 
     // Constructor to restore board from state
     public ChessBoard(String[][] state) {
-        board = new Piece[8][8];
-        hasKingMoved = new boolean[2];
-        hasRookMoved = new boolean[2][2];
-        lastPawnMove = new int[]{-1, -1};
-        lastMoveFrom = new int[]{-1, -1};
-        lastMoveTo = new int[]{-1, -1};
-        lastMoverColor = null;
+        initializeState();
         setBoardState(state);
     }
 
+    // Completes a restore after clearPieces and putPiece have placed the pieces (see BoardCodec).
+    void restoreState(Color side, int rights, int enPassant, int halfmoves, int fullmoves) {
+        sideToMove = side;
+        castlingRights = rights & ALL_CASTLING;
+        enPassantSquare = enPassant;
+        halfmoveClock = Math.max(halfmoves, 0);
+        fullmoveNumber = Math.max(fullmoves, 1);
+        zobristKey = computeZobristKey();
+    }
+
+    // Copies the position; the copy starts with an empty undo stack but still recognises repetitions of the
+    // positions the original went through.
+    public ChessBoard(ChessBoard other) {
+        initializeState();
+        copyPositionFrom(other);
+    }
+
+    // Overwrites this board with another's position, reusing this board's arrays; the undo stack is cleared.
+    // The keys of the positions since the last capture or pawn move, on the other board's undo stack or
+    // copied into it, are kept for isRepetition.
+    public void copyPositionFrom(ChessBoard other) {
+        copyPriorKeysFrom(other);
+        System.arraycopy(other.squares, 0, squares, 0, squares.length);
+        System.arraycopy(other.pieceBitboards, 0, pieceBitboards, 0, pieceBitboards.length);
+        colorBitboards[0] = other.colorBitboards[0];
+        colorBitboards[1] = other.colorBitboards[1];
+        occupied = other.occupied;
+        historySize = 0;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        lastMoveFrom = other.lastMoveFrom;
+        lastMoveTo = other.lastMoveTo;
+        lastMoverColor = other.lastMoverColor;
+        zobristKey = other.zobristKey;
+        midgameScore = other.midgameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+    }
+
+    private void copyPriorKeysFrom(ChessBoard other) {
+        int count = Math.min(Math.min(other.halfmoveClock, other.priorKeyCount + other.historySize), PRIOR_KEYS_CAPACITY);
+        int fromHistory = Math.min(count, other.historySize);
+        int fromPrior = count - fromHistory;
+        System.arraycopy(other.priorKeys, other.priorKeyCount - fromPrior, priorKeys, 0, fromPrior);
+        System.arraycopy(other.historyKeys, other.historySize - fromHistory, priorKeys, fromPrior, fromHistory);
+        priorKeyCount = count;
+    }
+
+    // Reads a FEN string. Missing trailing fields default to white to move, no castling, no en passant and
+    // clocks of 0 and 1; castling rights whose king or rook is not on its home square are dropped.
+    public static ChessBoard fromFen(String fen) {
+        if (fen == null || fen.trim().isEmpty()) {
+            throw new IllegalArgumentException("FEN is required.");
+        }
+        String[] fields = fen.trim().split("\\s+");
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN must describe 8 ranks: " + fen);
+        }
+
+        ChessBoard board = new ChessBoard();
+        board.clearPieces();
+        for (int row = 0; row < 8; row++) {
+            int col = 0;
+            for (char c : ranks[row].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                    continue;
+                }
+                Piece piece = Piece.fromFenChar(c);
+                if (piece == null || col > 7) {
+                    throw new IllegalArgumentException("Invalid FEN placement: " + fields[0]);
+                }
+                board.putPiece(square(row, col++), piece);
+            }
+            if (col != 8) {
+                throw new IllegalArgumentException("Invalid FEN placement: " + fields[0]);
+            }
+        }
+
+        if (fields.length > 1 && !"w".equals(fields[1]) && !"b".equals(fields[1])) {
+            throw new IllegalArgumentException("Invalid FEN side to move: " + fields[1]);
+        }
+        board.sideToMove = fields.length > 1 && "b".equals(fields[1]) ? Color.BLACK : Color.WHITE;
+        board.castlingRights = 0;
+        if (fields.length > 2 && !"-".equals(fields[2])) {
+            for (char c : fields[2].toCharArray()) {
+                switch (c) {
+                    case 'K': board.castlingRights |= WHITE_KINGSIDE; break;
+                    case 'Q': board.castlingRights |= WHITE_QUEENSIDE; break;
+                    case 'k': board.castlingRights |= BLACK_KINGSIDE; break;
+                    case 'q': board.castlingRights |= BLACK_QUEENSIDE; break;
+                    default: throw new IllegalArgumentException("Invalid FEN castling field: " + fields[2]);
+                }
+            }
+        }
+        board.castlingRights &= board.castlingRightsAllowedByPlacement();
+        board.enPassantSquare = -1;
+        if (fields.length > 3 && fields[3].length() == 2) {
+            int col = fields[3].charAt(0) - 'a';
+            int row = 8 - (fields[3].charAt(1) - '0');
+            Color capturer = row == 2 ? Color.WHITE : Color.BLACK;
+            if (col >= 0 && col < 8 && (row == 2 || row == 5)
+                    && (Attacks.pawn(opposite(capturer), square(row, col)) & board.pieces(PieceType.PAWN, capturer)) != 0) {
+                board.enPassantSquare = square(row, col);
+            }
+        }
+        board.halfmoveClock = fields.length > 4 ? parseFenCounter(fields[4], 0) : 0;
+        board.fullmoveNumber = fields.length > 5 ? parseFenCounter(fields[5], 1) : 1;
+        board.zobristKey = board.computeZobristKey();
+        return board;
+    }
+
+    private static int parseFenCounter(String field, int minimum) {
+        try {
+            int value = Integer.parseInt(field);
+            if (value >= minimum) {
+                return value;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid FEN move counter: " + field);
+    }
+
+    // Full FEN of the current position; fromFen(toFen()) reproduces the board, including its Zobrist key.
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                Piece piece = squares[square(row, col)];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(piece.getFenChar());
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row < 7) {
+                fen.append('/');
+            }
+        }
+        fen.append(sideToMove == Color.BLACK ? " b " : " w ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) fen.append('K');
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) fen.append('Q');
+            if ((castlingRights & BLACK_KINGSIDE) != 0) fen.append('k');
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) fen.append('q');
+        }
+        fen.append(' ').append(enPassantSquare >= 0 ? Move.squareName(enPassantSquare) : "-");
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    private int castlingRightsAllowedByPlacement() {
+        int allowed = 0;
+        if (squares[square(7, 4)] == Piece.of(PieceType.KING, Color.WHITE)) {
+            if (squares[square(7, 7)] == Piece.of(PieceType.ROOK, Color.WHITE)) allowed |= WHITE_KINGSIDE;
+            if (squares[square(7, 0)] == Piece.of(PieceType.ROOK, Color.WHITE)) allowed |= WHITE_QUEENSIDE;
+        }
+        if (squares[square(0, 4)] == Piece.of(PieceType.KING, Color.BLACK)) {
+            if (squares[square(0, 7)] == Piece.of(PieceType.ROOK, Color.BLACK)) allowed |= BLACK_KINGSIDE;
+            if (squares[square(0, 0)] == Piece.of(PieceType.ROOK, Color.BLACK)) allowed |= BLACK_QUEENSIDE;
+        }
+        return allowed;
+    }
+
     public java.util.Map<String, java.util.List<String>> getAllValidMoves(Color currentTurn) {
         java.util.Map<String, java.util.List<String>> validMoves = new java.util.HashMap<>();
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Piece piece = board[i][j];
-                if (piece != null && piece.getColor() == currentTurn) {
-                    String from = toAlgebraic(i, j);
-                    java.util.List<String> moves = new java.util.ArrayList<>();
-                    for (int r = 0; r < 8; r++) {
-                        for (int c = 0; c < 8; c++) {
-                            if (isValidMove(i, j, r, c, currentTurn)) {
-                                moves.add(toAlgebraic(r, c));
-                            }
-                        }
-                    }
-                    if (!moves.isEmpty()) {
-                        validMoves.put(from, moves);
-                    }
+        try (MoveList legalMoves = MoveList.acquire()) {
+            int count = generateLegalMoves(currentTurn, legalMoves);
+            for (int i = 0; i < count; i++) {
+                int move = legalMoves.get(i);
+                PieceType promotion = Move.promotion(move);
+                if (promotion != null && promotion != PieceType.QUEEN) {
+                    continue; // one entry per destination square; the promotion piece is chosen separately
+                }
+                String from = toAlgebraic(Move.fromRow(move), Move.fromCol(move));
+                java.util.List<String> moves = validMoves.get(from);
+                if (moves == null) {
+                    moves = new java.util.ArrayList<>();
+                    validMoves.put(from, moves);
                 }
+                moves.add(toAlgebraic(Move.toRow(move), Move.toCol(move)));
             }
         }
         return validMoves;
@@ -488,4 +1159,4 @@ public class ChessBoard {
         int rank = 8 - row;
         return "" + file + rank;
     }
-}
\ No newline at end of file
+}
@@ -1,20 +1,38 @@
 package com.vishwask.chess;
 
+import com.vishwask.engine.EngineScheduler;
+import com.vishwask.engine.OpeningBook;
+import com.vishwask.engine.SearchLimits;
+import com.vishwask.engine.SearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
 import java.util.Random;
 
 @Service
 public class ChessGame {
+    private static final String OWNER = "local-game";
+
     private ChessBoard board;
     private Color currentTurn;
     private String lastMessage;
-    private Random random;
+
+    @Autowired
+    private EngineScheduler engineScheduler;
+
+    @Autowired
+    private OpeningBook openingBook;
+
+    @Value("${chess.ai.depth:8}")
+    private int aiDepth;
+
+    private final Random random = new Random();
 
     public ChessGame() {
         board = new ChessBoard();
         currentTurn = Color.WHITE;
         lastMessage = "";
-        random = new Random();
     }
 
     public String[][] getBoardState() {
@@ -60,25 +78,14 @@ public class ChessGame {
     }
 
     public void makeAIMove() {
-        // Simple AI: make a random valid move
-        java.util.List<int[]> validMoves = new java.util.ArrayList<>();
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                Piece piece = board.getPiece(fromRow, fromCol);
-                if (piece != null && piece.getColor() == currentTurn) {
-                    for (int toRow = 0; toRow < 8; toRow++) {
-                        for (int toCol = 0; toCol < 8; toCol++) {
-                            if (board.isValidMove(fromRow, fromCol, toRow, toCol, currentTurn)) {
-                                validMoves.add(new int[]{fromRow, fromCol, toRow, toCol});
-                            }
-                        }
-                    }
-                }
-            }
+        board.setSideToMove(currentTurn);
+        int move = openingBook.probe(board, random);
+        if (move == Move.NONE) {
+            SearchResult result = engineScheduler.search(OWNER, EngineScheduler.Priority.LIVE, board, SearchLimits.depth(aiDepth));
+            move = result.getBestMove();
         }
-        if (!validMoves.isEmpty()) {
-            int[] move = validMoves.get(random.nextInt(validMoves.size()));
-            makeMove(move[0], move[1], move[2], move[3]);
+        if (move != Move.NONE) {
+            makeMove(Move.fromRow(move), Move.fromCol(move), Move.toRow(move), Move.toCol(move));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package com.vishwask.chess;
+
+import com.vishwask.engine.Engine;
+import com.vishwask.engine.Bitbase;
+import com.vishwask.engine.Bitbases;
+import com.vishwask.engine.EngineOptions;
+import com.vishwask.engine.EngineScheduler;
+import com.vishwask.engine.OpeningBook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class EngineConfig {
+
+    @Value("${chess.engine.null-move:true}")
+    private boolean nullMove;
+
+    @Value("${chess.engine.late-move-reductions:true}")
+    private boolean lateMoveReductions;
+
+    @Value("${chess.engine.futility-pruning:true}")
+    private boolean futilityPruning;
+
+    @Value("${chess.engine.aspiration-windows:true}")
+    private boolean aspirationWindows;
+
+    // One engine serves every game, so its hash table and helper pool are the whole of its memory and
+    // thread budget. A negative helper limit leaves one core per search thread on this machine.
+    @Bean
+    public Engine engine(Bitbases bitbases,
+                         @Value("${chess.engine.hash-mb:64}") int hashMb,
+                         @Value("${chess.engine.max-helper-threads:-1}") int maxHelperThreads) {
+        if (maxHelperThreads < 0) {
+            maxHelperThreads = Runtime.getRuntime().availableProcessors() - 1;
+        }
+        EngineOptions options = EngineOptions.DEFAULT
+                .withNullMove(nullMove)
+                .withLateMoveReductions(lateMoveReductions)
+                .withFutilityPruning(futilityPruning)
+                .withAspirationWindows(aspirationWindows);
+        return new Engine(hashMb, maxHelperThreads, options, bitbases);
+    }
+
+    // The book is mapped once and shared by every game; an empty location turns it off. Books inside the
+    // application jar are copied out to a temporary file, since only files can be memory-mapped.
+    @Bean
+    public OpeningBook openingBook(ResourceLoader resourceLoader,
+                                   @Value("${chess.engine.book:classpath:book/openings.bin}") String location) throws IOException {
+        if (location.trim().isEmpty()) {
+            return OpeningBook.empty();
+        }
+        Resource resource = resourceLoader.getResource(location.trim());
+        if (resource.isFile()) {
+            return OpeningBook.open(resource.getFile().toPath());
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return OpeningBook.open(in);
+        }
+    }
+
+    // Endgame tables are looked up as <location><name>.bin for each standard name; missing ones are skipped,
+    // so larger tables such as KBNK can be generated offline and dropped into a directory given here.
+    @Bean
+    public Bitbases bitbases(ResourceLoader resourceLoader,
+                             @Value("${chess.engine.bitbases:classpath:bitbases/}") String location) throws IOException {
+        if (location.trim().isEmpty()) {
+            return Bitbases.none();
+        }
+        List<Bitbase> tables = new ArrayList<>();
+        for (String name : Bitbases.STANDARD) {
+            Resource resource = resourceLoader.getResource(location.trim() + name + ".bin");
+            if (!resource.exists()) {
+                continue;
+            }
+            if (resource.isFile()) {
+                tables.add(Bitbase.open(name, resource.getFile().toPath()));
+            } else {
+                try (InputStream in = resource.getInputStream()) {
+                    tables.add(Bitbase.open(name, in));
+                }
+            }
+        }
+        return Bitbases.of(tables.toArray(new Bitbase[0]));
+    }
+
+    // Every search goes through the scheduler, whose workers bound the cores the engine uses however many
+    // games are running. A negative worker count uses one worker per core. As the bounded queue fills,
+    // searches are shortened rather than left waiting (see EngineScheduler).
+    @Bean(destroyMethod = "close")
+    public EngineScheduler engineScheduler(Engine engine,
+                                           @Value("${chess.engine.workers:-1}") int workers,
+                                           @Value("${chess.engine.queue-capacity:256}") int queueCapacity) {
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        return new EngineScheduler(engine, workers, queueCapacity);
+    }
+}
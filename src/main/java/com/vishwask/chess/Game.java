@@ -1,5 +1,7 @@
 package com.vishwask.chess;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -25,8 +27,17 @@ public class Game {
     @Enumerated(EnumType.STRING)
     private Color currentTurn = Color.WHITE;
 
-    @Column(length = 1000)
-    private String boardState; // JSON representation of board
+    @Column(length = 64)
+    private String boardData; // BoardCodec encoding of the position
+
+    @Column(name = "board_state", length = 1000)
+    private String legacyBoardState; // JSON board from before boardData; cleared by BoardStateMigrator
+
+    @Transient
+    private String boardState; // JSON representation of board sent to clients
+
+    @Transient
+    private String fen; // full FEN of the loaded position, including castling, en passant and clocks
 
     private String lastMessage;
 
@@ -39,6 +50,9 @@ public class Game {
     @Enumerated(EnumType.STRING)
     private Color playerColor; // For AI games: which color the human plays
 
+    @Enumerated(EnumType.STRING)
+    private AIDifficulty aiDifficulty; // For AI games: null for games from before difficulty levels
+
     private LocalDateTime createdAt = LocalDateTime.now();
 
     private LocalDateTime lastMoveAt;
@@ -100,9 +114,20 @@ public class Game {
     public Color getCurrentTurn() { return currentTurn; }
     public void setCurrentTurn(Color currentTurn) { this.currentTurn = currentTurn; }
 
-    public String getBoardState() { return boardState; }
+    public String getBoardState() { return boardState != null ? boardState : legacyBoardState; }
     public void setBoardState(String boardState) { this.boardState = boardState; }
 
+    public String getFen() { return fen; }
+    public void setFen(String fen) { this.fen = fen; }
+
+    @JsonIgnore
+    public String getBoardData() { return boardData; }
+    public void setBoardData(String boardData) { this.boardData = boardData; }
+
+    @JsonIgnore
+    public String getLegacyBoardState() { return legacyBoardState; }
+    public void setLegacyBoardState(String legacyBoardState) { this.legacyBoardState = legacyBoardState; }
+
     public String getLastMessage() { return lastMessage; }
     public void setLastMessage(String lastMessage) { this.lastMessage = lastMessage; }
 
@@ -132,6 +157,8 @@ public class Game {
 
     public Color getPlayerColor() { return playerColor; }
     public void setPlayerColor(Color playerColor) { this.playerColor = playerColor; }
+    public AIDifficulty getAiDifficulty() { return aiDifficulty; }
+    public void setAiDifficulty(AIDifficulty aiDifficulty) { this.aiDifficulty = aiDifficulty; }
 
     public String getLastMoveFrom() { return lastMoveFrom; }
     public void setLastMoveFrom(String lastMoveFrom) { this.lastMoveFrom = lastMoveFrom; }
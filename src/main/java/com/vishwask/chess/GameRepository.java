@@ -1,10 +1,26 @@
 package com.vishwask.chess;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 public interface GameRepository extends JpaRepository<Game, Long> {
     List<Game> findByStatus(GameStatus status);
     List<Game> findByWhitePlayerOrBlackPlayer(User whitePlayer, User blackPlayer);
     Game findByGameUuid(String gameUuid);
-}
\ No newline at end of file
+
+    // Rows still holding only the JSON board, as [id, legacyBoardState, currentTurn], in id order.
+    @Query("select g.id, g.legacyBoardState, g.currentTurn from Game g "
+            + "where g.boardData is null and g.legacyBoardState is not null and g.id > :afterId order by g.id")
+    List<Object[]> findLegacyBoards(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Only applies while boardData is still empty, so a move saved in the meantime is never overwritten.
+    @Modifying
+    @Transactional
+    @Query("update Game g set g.boardData = :boardData, g.legacyBoardState = null where g.id = :id and g.boardData is null")
+    int storeMigratedBoard(@Param("id") Long id, @Param("boardData") String boardData);
+}
@@ -2,30 +2,85 @@ package com.vishwask.chess;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.vishwask.engine.EngineScheduler;
+import com.vishwask.engine.OpeningBook;
+import com.vishwask.engine.SearchLimits;
+import com.vishwask.engine.SearchResult;
 
 @Service
 public class GameService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(GameService.class);
+
+    // Searches for one reply, the first included, before a failing engine is left alone until the game is
+    // fetched again.
+    private static final int MAX_AI_ATTEMPTS = 3;
+
     @Autowired
     private SimpMessagingTemplate simpMessagingTemplate;
 
     @Autowired
     private GameRepository gameRepository;
 
+    @Autowired
+    private EngineScheduler engineScheduler;
+
+    @Autowired
+    private OpeningBook openingBook;
+
+    @Value("${chess.ai.depth:8}")
+    private int aiDepth;
+
+    @Value("${chess.ai.max-nodes:2000000}")
+    private long aiMaxNodes;
+
+    @Value("${chess.ai.max-move-millis:5000}")
+    private long aiMaxMoveMillis;
+
+    @Value("${chess.ai.threads:1}")
+    private int aiThreads;
+
+    @Value("${chess.ai.ponder:true}")
+    private boolean ponderEnabled;
+
     private Map<String, ChessBoard> gameBoards = new ConcurrentHashMap<>();
     private ObjectMapper objectMapper = new ObjectMapper();
     private Random random = new Random();
 
+    // Computer replies being searched, by game. A search is dropped by removing its entry: the task applies
+    // its move only if it can still remove the entry itself.
+    private final Map<String, PendingAIMove> pendingAIMoves = new ConcurrentHashMap<>();
+
+    // While the human thinks, the engine searches the position after the reply it expects, by game.
+    private final Map<String, Ponder> ponders = new ConcurrentHashMap<>();
+
+    private final AIUsage aiUsage = new AIUsage();
+
+    // Everything that reads or changes a game and its cached board runs under the game's lock: requests,
+    // and computer moves applied from engine threads. A late reply can then never overwrite a finished game,
+    // and no request sees a board in the middle of a move. Striped by game id to keep the lock count fixed.
+    private final Object[] gameLocks = new Object[64];
+
+    {
+        for (int i = 0; i < gameLocks.length; i++) {
+            gameLocks[i] = new Object();
+        }
+    }
+
     private void resetOutcome(Game game) {
         game.setResult(GameOutcome.UNDECIDED);
         game.setEndType(null);
@@ -38,6 +93,7 @@ public class GameService {
     }
 
     private void finalizeGame(Game game, GameOutcome outcome, GameEndType endType, String customMessage) {
+        cancelAIMove(game.getGameUuid());
         game.setStatus(GameStatus.FINISHED);
         game.setResult(outcome != null ? outcome : GameOutcome.UNDECIDED);
         game.setEndType(endType);
@@ -136,7 +192,7 @@ public class GameService {
         configureTimeControls(game, initialTimeSeconds);
         ChessBoard board = new ChessBoard();
         gameBoards.put(game.getGameUuid(), board);
-        game.setBoardState(serializeBoard(board.getBoardState()));
+        storeBoard(game, board);
         Game savedGame = gameRepository.save(game);
         populateValidMoves(savedGame);
         return savedGame;
@@ -168,11 +224,12 @@ public class GameService {
         }
     }
 
-    public Game createGameVsAi(User player, Color playerColor) {
+    public Game createGameVsAi(User player, Color playerColor, Integer initialTimeSeconds, AIDifficulty difficulty) {
         Game game = new Game();
         game.setGameUuid(java.util.UUID.randomUUID().toString());
         game.setGameType(GameType.HUMAN_VS_AI);
         game.setPlayerColor(playerColor);
+        game.setAiDifficulty(difficulty);
         game.setStatus(GameStatus.ACTIVE);
         resetOutcomeIfActive(game);
         
@@ -187,31 +244,40 @@ public class GameService {
         
         ChessBoard board = new ChessBoard();
         gameBoards.put(game.getGameUuid(), board);
-        game.setBoardState(serializeBoard(board.getBoardState()));
+        storeBoard(game, board);
         game.setLastMoveAt(LocalDateTime.now());
-        configureTimeControls(game, null);
+        configureTimeControls(game, initialTimeSeconds);
         
-        // If AI plays white, make first move
+        // If AI plays white, its first move is requested like any other reply: a book move is played at once,
+        // a search is pushed when done. The game page fetches the game again once subscribed, so it sees the
+        // move either way.
         if (playerColor == Color.BLACK) {
-            boolean aiMoved = makeAIMove(board, Color.WHITE);
-            if (aiMoved) {
-                applyLastMoveMetadata(game, board, Color.WHITE);
-                game.setCurrentTurn(Color.BLACK);
-                game.setBoardState(serializeBoard(board.getBoardState()));
-                game.setMoveCount(1);
-                game.setLastMessage("AI played White. Your turn.");
+            game.setCurrentTurn(Color.WHITE);
+            if (isTimeControlEnabled(game)) {
+                game.setTurnStartAt(LocalDateTime.now());
             }
-        } else {
-            game.setLastMessage("");
         }
+        game.setLastMessage("");
         
         Game savedGame = gameRepository.save(game);
         populateValidMoves(savedGame);
         simpMessagingTemplate.convertAndSend("/topic/game/" + savedGame.getGameUuid(), savedGame);
+        if (isAITurn(savedGame)) {
+            requestAIMove(savedGame.getGameUuid(), 1);
+            return loadGame(savedGame.getGameUuid());
+        }
         return savedGame;
     }
 
     public Game joinGame(String gameUuid, User joiningPlayer) {
+        Game game;
+        synchronized (lockFor(gameUuid)) {
+            game = join(gameUuid, joiningPlayer);
+        }
+        return resumeAIMove(game);
+    }
+
+    private Game join(String gameUuid, User joiningPlayer) {
         Game game = gameRepository.findByGameUuid(gameUuid);
         if (game == null) {
             throw new RuntimeException("Game not found");
@@ -262,7 +328,21 @@ public class GameService {
         throw new RuntimeException("Game is not available to join");
     }
 
+    // Commits and broadcasts the human move at once; a computer reply is searched on the AI executor and
+    // broadcast when it is played, so the WebSocket thread never waits for the engine.
     public Game makeMove(String gameUuid, User player, int fromRow, int fromCol, int toRow, int toCol, String promotion) {
+        Game game;
+        synchronized (lockFor(gameUuid)) {
+            game = playHumanMove(gameUuid, player, fromRow, fromCol, toRow, toCol, promotion);
+        }
+        simpMessagingTemplate.convertAndSend("/topic/game/" + gameUuid, game);
+        if (isAITurn(game)) {
+            requestAIMove(gameUuid, 1);
+        }
+        return game;
+    }
+
+    private Game playHumanMove(String gameUuid, User player, int fromRow, int fromCol, int toRow, int toCol, String promotion) {
         Game game = gameRepository.findByGameUuid(gameUuid);
         if (game == null) {
             throw new RuntimeException("Game not found");
@@ -327,7 +407,7 @@ public class GameService {
 
         applyLastMoveMetadata(game, board, playerColor);
         game.setCurrentTurn(game.getCurrentTurn() == Color.WHITE ? Color.BLACK : Color.WHITE);
-        game.setBoardState(serializeBoard(board.getBoardState()));
+        storeBoard(game, board);
         game.setLastMoveAt(LocalDateTime.now());
         game.setMoveCount(game.getMoveCount() + 1);
         game.setDrawOfferBy(null);
@@ -339,39 +419,6 @@ public class GameService {
             game.setTurnStartAt(LocalDateTime.now());
         }
 
-        // Trigger AI move if applicable and game still active
-        if (game.getStatus() == GameStatus.ACTIVE
-                && game.getGameType() == GameType.HUMAN_VS_AI
-                && game.getCurrentTurn() != game.getPlayerColor()) {
-            Color aiColor = game.getCurrentTurn();
-            boolean aiMoved = makeAIMove(board, aiColor);
-            if (aiMoved) {
-                applyLastMoveMetadata(game, board, aiColor);
-                game.setCurrentTurn(game.getPlayerColor());
-                game.setBoardState(serializeBoard(board.getBoardState()));
-                game.setLastMoveAt(LocalDateTime.now());
-                game.setMoveCount(game.getMoveCount() + 1);
-                game.setDrawOfferBy(null);
-                game.setDrawOfferAt(null);
-                resetOutcomeIfActive(game);
-                updateStatus(game, board);
-
-                if (isTimeControlEnabled(game) && game.getStatus() == GameStatus.ACTIVE) {
-                    game.setTurnStartAt(LocalDateTime.now());
-                }
-
-                Game savedGameAfterAI = gameRepository.save(game);
-                populateValidMoves(savedGameAfterAI);
-                simpMessagingTemplate.convertAndSend("/topic/game/" + gameUuid, savedGameAfterAI);
-                return savedGameAfterAI;
-
-            } else {
-                Color humanColor = game.getPlayerColor() != null ? game.getPlayerColor() : Color.WHITE;
-                GameOutcome outcome = humanColor == Color.WHITE ? GameOutcome.WHITE_WIN : GameOutcome.BLACK_WIN;
-                finalizeGame(game, outcome, GameEndType.OTHER, "AI has no moves. You win!");
-            }
-        }
-
         Game savedGame = gameRepository.save(game);
         populateValidMoves(savedGame);
         return savedGame;
@@ -386,14 +433,30 @@ public class GameService {
     }
 
     public Game getGame(String gameUuid) {
-        Game game = gameRepository.findByGameUuid(gameUuid);
-        if (game == null) {
-            throw new RuntimeException("Game not found");
+        return resumeAIMove(loadGame(gameUuid));
+    }
+
+    private Game loadGame(String gameUuid) {
+        synchronized (lockFor(gameUuid)) {
+            Game game = gameRepository.findByGameUuid(gameUuid);
+            if (game == null) {
+                throw new RuntimeException("Game not found");
+            }
+
+            ensureBoardLoaded(game);
+            populateValidMoves(game);
+            return game;
         }
+    }
 
-        ensureBoardLoaded(game);
-        populateValidMoves(game);
-        return game;
+    // A game waiting for a computer move that nobody is searching, because the server restarted or the
+    // search kept failing, gets its reply requested again when it is fetched. Returns the game as it is now.
+    private Game resumeAIMove(Game game) {
+        if (!isAITurn(game) || pendingAIMoves.containsKey(game.getGameUuid())) {
+            return game;
+        }
+        requestAIMove(game.getGameUuid(), 1);
+        return loadGame(game.getGameUuid());
     }
 
     private Color resolvePlayerColor(Game game, User player) {
@@ -414,6 +477,12 @@ public class GameService {
     }
 
     public Game resignGame(String gameUuid, User player) {
+        synchronized (lockFor(gameUuid)) {
+            return resign(gameUuid, player);
+        }
+    }
+
+    private Game resign(String gameUuid, User player) {
         Game game = gameRepository.findByGameUuid(gameUuid);
         if (game == null) {
             throw new RuntimeException("Game not found");
@@ -449,6 +518,12 @@ public class GameService {
     }
 
     public Game offerDraw(String gameUuid, User player) {
+        synchronized (lockFor(gameUuid)) {
+            return proposeDraw(gameUuid, player);
+        }
+    }
+
+    private Game proposeDraw(String gameUuid, User player) {
         Game game = gameRepository.findByGameUuid(gameUuid);
         if (game == null) {
             throw new RuntimeException("Game not found");
@@ -492,6 +567,12 @@ public class GameService {
     }
 
     public Game respondToDraw(String gameUuid, User player, boolean accept) {
+        synchronized (lockFor(gameUuid)) {
+            return answerDraw(gameUuid, player, accept);
+        }
+    }
+
+    private Game answerDraw(String gameUuid, User player, boolean accept) {
         Game game = gameRepository.findByGameUuid(gameUuid);
         if (game == null) {
             throw new RuntimeException("Game not found");
@@ -541,6 +622,12 @@ public class GameService {
     }
 
     public Game claimTimeout(String gameUuid, User player) {
+        synchronized (lockFor(gameUuid)) {
+            return resolveTimeoutClaim(gameUuid, player);
+        }
+    }
+
+    private Game resolveTimeoutClaim(String gameUuid, User player) {
         Game game = gameRepository.findByGameUuid(gameUuid);
         if (game == null) {
             throw new RuntimeException("Game not found");
@@ -626,44 +713,318 @@ public class GameService {
     private ChessBoard ensureBoardLoaded(Game game) {
         ChessBoard board = gameBoards.get(game.getGameUuid());
         if (board == null) {
-            if (game.getBoardState() != null && !game.getBoardState().isEmpty()) {
-                try {
-                    String[][] boardState = objectMapper.readValue(game.getBoardState(), String[][].class);
-                    board = new ChessBoard(boardState);
-                } catch (Exception e) {
-                    board = new ChessBoard();
-                    game.setBoardState(serializeBoard(board.getBoardState()));
-                }
-            } else {
+            board = restoreBoard(game);
+            gameBoards.put(game.getGameUuid(), board);
+        }
+        if (game.getBoardState() == null) {
+            game.setBoardState(serializeBoard(board.getBoardState()));
+        }
+        if (game.getFen() == null) {
+            game.setFen(board.toFen());
+        }
+        return board;
+    }
+
+    private ChessBoard restoreBoard(Game game) {
+        if (game.getBoardData() != null) {
+            try {
+                return BoardCodec.decode(game.getBoardData());
+            } catch (IllegalArgumentException e) {
+                // Fall through to the legacy column or a fresh board
+            }
+        }
+        ChessBoard board;
+        if (game.getLegacyBoardState() != null && !game.getLegacyBoardState().isEmpty()) {
+            try {
+                board = BoardStateMigrator.parseLegacyBoard(game.getLegacyBoardState(), game.getCurrentTurn());
+            } catch (Exception e) {
                 board = new ChessBoard();
-                game.setBoardState(serializeBoard(board.getBoardState()));
             }
-            gameBoards.put(game.getGameUuid(), board);
+        } else {
+            board = new ChessBoard();
         }
+        storeBoard(game, board);
         return board;
     }
 
-    private boolean makeAIMove(ChessBoard board, Color aiColor) {
-        List<int[]> validMoves = new ArrayList<>();
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                Piece piece = board.getPiece(fromRow, fromCol);
-                if (piece != null && piece.getColor() == aiColor) {
-                    for (int toRow = 0; toRow < 8; toRow++) {
-                        for (int toCol = 0; toCol < 8; toCol++) {
-                            if (board.isValidMove(fromRow, fromCol, toRow, toCol, aiColor)) {
-                                validMoves.add(new int[]{fromRow, fromCol, toRow, toCol});
-                            }
-                        }
-                    }
+    private void storeBoard(Game game, ChessBoard board) {
+        game.setBoardData(BoardCodec.encode(board));
+        game.setLegacyBoardState(null);
+        game.setBoardState(serializeBoard(board.getBoardState()));
+        game.setFen(board.toFen());
+    }
+
+    private boolean isAITurn(Game game) {
+        return game.getStatus() == GameStatus.ACTIVE
+                && game.getGameType() == GameType.HUMAN_VS_AI
+                && game.getCurrentTurn() != game.getPlayerColor();
+    }
+
+    // Queues a search for the computer's reply unless one is already running; book replies are played at once.
+    // Checked against the stored game under its lock, so a reply that is being applied right now is not
+    // searched twice. A search that fails is tried again, up to MAX_AI_ATTEMPTS in all.
+    private void requestAIMove(String gameUuid, int attempt) {
+        PendingAIMove pending;
+        synchronized (lockFor(gameUuid)) {
+            Game game = gameRepository.findByGameUuid(gameUuid);
+            if (game == null || !isAITurn(game) || pendingAIMoves.containsKey(gameUuid)) {
+                return;
+            }
+            Color aiColor = game.getCurrentTurn();
+            ChessBoard position = new ChessBoard(ensureBoardLoaded(game));
+            position.setSideToMove(aiColor);
+            long positionKey = position.getZobristKey();
+            AIDifficulty level = difficultyOf(game);
+            pending = new PendingAIMove(aiColor, positionKey, level);
+            pending.limits = aiSearchLimits(game, aiColor);
+            Ponder ponder = ponders.remove(gameUuid);
+            if (ponder != null && ponder.positionKey == positionKey) {
+                SearchResult pondered = ponder.finishedResult();
+                if (pondered != null && pondered.hasMove()) {
+                    completeAIMove(gameUuid, aiColor, positionKey, pondered.getBestMove(), expectedReply(pondered));
+                    return;
+                }
+                // A hit still being searched goes on as the reply, now on the computer's clock.
+                if (engineScheduler.promote(ponder.job, pending.limits)) {
+                    pending.attach(ponder.job); // its usage is recorded as pondering
+                    pendingAIMoves.put(gameUuid, pending);
+                }
+            } else if (ponder != null) {
+                // A miss: the search below still starts from what pondering left in the shared hash table, as
+                // only levels without evaluation noise ponder.
+                ponder.job.cancel();
+            }
+            if (pending.job == null) {
+                int bookMove = openingBook.probe(position, random);
+                if (bookMove != Move.NONE) {
+                    aiUsage.recordBookMove(level);
+                    completeAIMove(gameUuid, aiColor, positionKey, bookMove, Move.NONE);
+                    return;
                 }
+                pendingAIMoves.put(gameUuid, pending);
+                pending.position = position;
+            }
+        }
+        EngineScheduler.Job job = pending.job;
+        if (job == null) {
+            // Queued outside the game's lock: submitting may displace another game's queued search, and the
+            // callbacks of that search take its own game's lock on this thread.
+            try {
+                job = engineScheduler.submit(gameUuid, EngineScheduler.Priority.LIVE, pending.position, pending.limits);
+            } catch (RejectedExecutionException ex) {
+                pendingAIMoves.remove(gameUuid, pending);
+                LOG.warn("Could not queue the computer move for game {}", gameUuid, ex);
+                return;
+            }
+            aiUsage.recordSearch(pending.level, job);
+            if (!pending.attach(job)) {
+                job.cancel(); // the game ended while the search was being queued
+                return;
+            }
+        }
+        job.getFuture().whenComplete((result, failure) -> {
+            if (!completeSearchedMove(gameUuid, pending, result, failure)) {
+                retryAIMove(gameUuid, attempt, failure);
+            }
+        });
+    }
+
+    // Plays the move the pending search found. False when the search failed while still wanted.
+    private boolean completeSearchedMove(String gameUuid, PendingAIMove pending, SearchResult result, Throwable failure) {
+        synchronized (lockFor(gameUuid)) {
+            if (!pendingAIMoves.remove(gameUuid, pending)) {
+                return true; // dropped: the game ended or moved on
+            }
+            if (failure != null) {
+                return false;
+            }
+            completeAIMove(gameUuid, pending.aiColor, pending.positionKey, result.getBestMove(), expectedReply(result));
+            return true;
+        }
+    }
+
+    private void retryAIMove(String gameUuid, int attempt, Throwable failure) {
+        if (attempt >= MAX_AI_ATTEMPTS) {
+            LOG.error("Computer move for game {} failed {} times; it is retried when the game is next fetched",
+                    gameUuid, attempt, failure);
+            return;
+        }
+        LOG.warn("Computer move for game {} failed; searching again", gameUuid, failure);
+        requestAIMove(gameUuid, attempt + 1);
+    }
+
+    private void cancelAIMove(String gameUuid) {
+        PendingAIMove pending = gameUuid != null ? pendingAIMoves.remove(gameUuid) : null;
+        if (pending != null) {
+            pending.cancel();
+        }
+        Ponder ponder = gameUuid != null ? ponders.remove(gameUuid) : null;
+        if (ponder != null) {
+            ponder.job.cancel();
+        }
+    }
+
+    // Searches the position after the human's expected reply at ponder priority, i.e. only on otherwise idle
+    // engine workers. Called with the game's lock held.
+    private void startPonder(Game game, ChessBoard board, int expectedReply) {
+        ChessBoard position = new ChessBoard(board);
+        position.setSideToMove(game.getPlayerColor());
+        int reply = position.findLegalMove(Move.compact(expectedReply));
+        if (reply == Move.NONE) {
+            return;
+        }
+        position.makeMove(reply);
+        AIDifficulty level = difficultyOf(game);
+        try {
+            EngineScheduler.Job job = engineScheduler.submit(game.getGameUuid(), EngineScheduler.Priority.PONDER,
+                    position, level.limit(SearchLimits.depth(aiDepth).withNodes(aiMaxNodes)));
+            aiUsage.recordSearch(level, job);
+            ponders.put(game.getGameUuid(), new Ponder(position.getZobristKey(), job));
+        } catch (RejectedExecutionException ex) {
+            // No spare capacity; the reply will be searched when it comes.
+        }
+    }
+
+    private static int expectedReply(SearchResult result) {
+        int[] pv = result.getPrincipalVariationMoves();
+        return pv.length > 1 ? pv[1] : Move.NONE;
+    }
+
+    // Plays a searched reply if the game is still waiting for it in the searched position, then broadcasts
+    // the result. Called with the game's lock held.
+    private void completeAIMove(String gameUuid, Color aiColor, long positionKey, int move, int expectedReply) {
+        Game game = gameRepository.findByGameUuid(gameUuid);
+        if (game == null || game.getStatus() != GameStatus.ACTIVE || game.getCurrentTurn() != aiColor) {
+            return;
+        }
+        ChessBoard board = ensureBoardLoaded(game);
+        board.setSideToMove(aiColor);
+        if (board.getZobristKey() != positionKey) {
+            return;
+        }
+        applyAIMove(game, board, aiColor, move);
+        Game savedGame = gameRepository.save(game);
+        populateValidMoves(savedGame);
+        simpMessagingTemplate.convertAndSend("/topic/game/" + gameUuid, savedGame);
+        if (ponderEnabled && difficultyOf(savedGame).isPonder() && expectedReply != Move.NONE
+                && savedGame.getStatus() == GameStatus.ACTIVE) {
+            startPonder(savedGame, board, expectedReply);
+        }
+    }
+
+    private void applyAIMove(Game game, ChessBoard board, Color aiColor, int move) {
+        if (move == Move.NONE) {
+            Color humanColor = game.getPlayerColor() != null ? game.getPlayerColor() : Color.WHITE;
+            GameOutcome outcome = humanColor == Color.WHITE ? GameOutcome.WHITE_WIN : GameOutcome.BLACK_WIN;
+            finalizeGame(game, outcome, GameEndType.OTHER, "AI has no moves. You win!");
+            return;
+        }
+        board.makeMove(move);
+        if (!chargeAIClock(game)) {
+            board.unmakeMove();
+            handleTimeout(game, aiColor);
+            return;
+        }
+        applyLastMoveMetadata(game, board, aiColor);
+        game.setCurrentTurn(game.getPlayerColor());
+        storeBoard(game, board);
+        game.setLastMoveAt(LocalDateTime.now());
+        game.setMoveCount(game.getMoveCount() + 1);
+        game.setDrawOfferBy(null);
+        game.setDrawOfferAt(null);
+        resetOutcomeIfActive(game);
+        updateStatus(game, board);
+
+        if (isTimeControlEnabled(game) && game.getStatus() == GameStatus.ACTIVE) {
+            game.setTurnStartAt(LocalDateTime.now());
+        }
+    }
+
+    private Object lockFor(String gameUuid) {
+        return gameLocks[(gameUuid.hashCode() & 0x7fffffff) % gameLocks.length];
+    }
+
+    private static final class Ponder {
+        private final long positionKey;
+        private final EngineScheduler.Job job;
+
+        Ponder(long positionKey, EngineScheduler.Job job) {
+            this.positionKey = positionKey;
+            this.job = job;
+        }
+
+        // The search result if pondering ran to its limits, otherwise null.
+        SearchResult finishedResult() {
+            CompletableFuture<SearchResult> future = job.getFuture();
+            return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+        }
+    }
+
+    // A computer reply queued on the engine scheduler. The move is applied only if the entry is still pending
+    // when the search completes; cancelling removes the entry first and then stops the search. The entry is
+    // registered before its search is queued, so it may be cancelled before it has a job.
+    private static final class PendingAIMove {
+        private final Color aiColor;
+        private final long positionKey;
+        private final AIDifficulty level;
+        private ChessBoard position;
+        private SearchLimits limits;
+        private EngineScheduler.Job job;
+        private boolean cancelled;
+
+        PendingAIMove(Color aiColor, long positionKey, AIDifficulty level) {
+            this.aiColor = aiColor;
+            this.positionKey = positionKey;
+            this.level = level;
+        }
+
+        // False when the move was cancelled before its search was queued.
+        synchronized boolean attach(EngineScheduler.Job job) {
+            if (cancelled) {
+                return false;
             }
+            this.job = job;
+            return true;
         }
-        if (validMoves.isEmpty()) {
-            return false;
+
+        void cancel() {
+            EngineScheduler.Job running;
+            synchronized (this) {
+                cancelled = true;
+                running = job;
+            }
+            if (running != null) {
+                running.cancel();
+            }
         }
-        int[] move = validMoves.get(random.nextInt(validMoves.size()));
-        return board.movePiece(move[0], move[1], move[2], move[3]);
+    }
+    // Every game searches at most to the configured depth. On a clock the engine also stops deepening once its
+    // share of the time left is used up, capped per move by chess.ai.max-move-millis.
+    private SearchLimits aiSearchLimits(Game game, Color aiColor) {
+        AIDifficulty level = difficultyOf(game);
+        SearchLimits limits = level.limit(SearchLimits.depth(aiDepth).withNodes(aiMaxNodes).withThreads(aiThreads));
+        if (!isTimeControlEnabled(game)) {
+            return limits;
+        }
+        Integer stored = aiColor == Color.WHITE ? game.getWhiteTimeRemainingSeconds() : game.getBlackTimeRemainingSeconds();
+        long remainingMillis = (stored != null ? stored : game.getInitialTimeSeconds()) * 1000L;
+        if (game.getTurnStartAt() != null) {
+            remainingMillis -= Math.max(Duration.between(game.getTurnStartAt(), LocalDateTime.now()).toMillis(), 0);
+        }
+        return limits.withClock(Math.max(remainingMillis, 0), aiMaxMoveMillis);
+    }
+
+    private static AIDifficulty difficultyOf(Game game) {
+        return game.getAiDifficulty() != null ? game.getAiDifficulty() : AIDifficulty.LEGACY;
+    }
+
+    public List<AIUsage.LevelUsage> getAIUsage() {
+        return aiUsage.snapshot();
+    }
+
+    // Deducts the AI's thinking time from its clock, as is done for human moves; false when it ran out.
+    private boolean chargeAIClock(Game game) {
+        return deductTimeForCurrentPlayer(game, LocalDateTime.now());
     }
 
     private void configureTimeControls(Game game, Integer initialTimeSeconds) {
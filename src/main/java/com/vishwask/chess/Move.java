@@ -0,0 +1,142 @@
+package com.vishwask.chess;
+
+// Moves are packed into a single int: bits 0-5 from square, 6-11 to square, 12-14 promotion piece, 15+ flags.
+// Squares use the same row * 8 + col numbering as ChessBoard (a8 = 0, h1 = 63). The low 16 bits alone form the
+// compact move used for storage and over the wire; ChessBoard.findLegalMove restores the flags.
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int FLAG_PROMOTION = 1 << 15;
+    public static final int FLAG_CAPTURE = 1 << 16;
+    public static final int FLAG_EN_PASSANT = 1 << 17;
+    public static final int FLAG_CASTLE = 1 << 18;
+    public static final int FLAG_DOUBLE_PUSH = 1 << 19;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int COMPACT_MASK = 0xFFFF;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int flags) {
+        return from | (to << TO_SHIFT) | flags;
+    }
+
+    public static int encode(int from, int to, PieceType promotion, int flags) {
+        return from | (to << TO_SHIFT) | (promotion.ordinal() << PROMOTION_SHIFT) | FLAG_PROMOTION | flags;
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    public static int fromRow(int move) {
+        return from(move) >>> 3;
+    }
+
+    public static int fromCol(int move) {
+        return from(move) & 7;
+    }
+
+    public static int toRow(int move) {
+        return to(move) >>> 3;
+    }
+
+    public static int toCol(int move) {
+        return to(move) & 7;
+    }
+
+    public static PieceType promotion(int move) {
+        if ((move & FLAG_PROMOTION) == 0) {
+            return null;
+        }
+        return PIECE_TYPES[(move >>> PROMOTION_SHIFT) & 7];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & FLAG_PROMOTION) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & FLAG_CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & FLAG_EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & FLAG_CASTLE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & FLAG_DOUBLE_PUSH) != 0;
+    }
+
+    public static int compact(int move) {
+        return move & COMPACT_MASK;
+    }
+
+    public static int compact(int fromRow, int fromCol, int toRow, int toCol, PieceType promotion) {
+        int from = fromRow * 8 + fromCol;
+        int to = toRow * 8 + toCol;
+        return promotion == null ? encode(from, to, 0) : encode(from, to, promotion, 0);
+    }
+
+    // {fromRow, fromCol, toRow, toCol}, the shape the controllers and client work with.
+    public static int[] toCoordinates(int move) {
+        return new int[]{fromRow(move), fromCol(move), toRow(move), toCol(move)};
+    }
+
+    // Parses coordinate notation ("e2e4", "e7e8q") into a compact move, or returns NONE if malformed.
+    public static int parse(String text) {
+        if (text == null || (text.length() != 4 && text.length() != 5)) {
+            return NONE;
+        }
+        int from = parseSquare(text, 0);
+        int to = parseSquare(text, 2);
+        if (from < 0 || to < 0) {
+            return NONE;
+        }
+        if (text.length() == 4) {
+            return encode(from, to, 0);
+        }
+        switch (Character.toLowerCase(text.charAt(4))) {
+            case 'q': return encode(from, to, PieceType.QUEEN, 0);
+            case 'r': return encode(from, to, PieceType.ROOK, 0);
+            case 'b': return encode(from, to, PieceType.BISHOP, 0);
+            case 'n': return encode(from, to, PieceType.KNIGHT, 0);
+            default: return NONE;
+        }
+    }
+
+    private static int parseSquare(String text, int offset) {
+        int col = text.charAt(offset) - 'a';
+        int row = '8' - text.charAt(offset + 1);
+        return col >= 0 && col < 8 && row >= 0 && row < 8 ? row * 8 + col : -1;
+    }
+
+    public static String squareName(int sq) {
+        return String.valueOf((char) ('a' + (sq & 7))) + (8 - (sq >>> 3));
+    }
+
+    // Coordinate notation such as "e2e4" or "e7e8q".
+    public static String toString(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        String text = squareName(from(move)) + squareName(to(move));
+        PieceType promotion = promotion(move);
+        if (promotion != null) {
+            text += promotion == PieceType.KNIGHT ? "n" : promotion.name().substring(0, 1).toLowerCase();
+        }
+        return text;
+    }
+}
@@ -0,0 +1,106 @@
+package com.vishwask.chess;
+
+// Growable list of packed moves backed by a primitive array, meant to be cleared and reused.
+// acquire() hands out lists from a per-thread stack so search and request handling never allocate one per
+// call; close them in reverse order, normally with try-with-resources.
+public class MoveList implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private static final ThreadLocal<Pool> POOL = ThreadLocal.withInitial(Pool::new);
+
+    private int[] moves;
+    private int size;
+    private Pool owner;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    // Borrows an empty list from the calling thread's pool.
+    public static MoveList acquire() {
+        return POOL.get().acquire();
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = java.util.Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Keeps the first newSize moves.
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("Cannot truncate " + size + " moves to " + newSize);
+        }
+        size = newSize;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns a pooled list to its thread; lists created with a constructor are unaffected.
+    @Override
+    public void close() {
+        if (owner != null) {
+            owner.release(this);
+        }
+    }
+
+    private static final class Pool {
+        private MoveList[] lists = new MoveList[16];
+        private int top;
+
+        MoveList acquire() {
+            if (top == lists.length) {
+                lists = java.util.Arrays.copyOf(lists, lists.length * 2);
+            }
+            MoveList list = lists[top];
+            if (list == null) {
+                list = new MoveList();
+                list.owner = this;
+                lists[top] = list;
+            }
+            top++;
+            list.clear();
+            return list;
+        }
+
+        void release(MoveList list) {
+            if (top == 0 || lists[top - 1] != list) {
+                throw new IllegalStateException("Pooled move lists must be released in reverse order of acquisition");
+            }
+            top--;
+        }
+    }
+}
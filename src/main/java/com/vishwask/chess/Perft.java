@@ -0,0 +1,172 @@
+package com.vishwask.chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Counts leaf nodes of the legal move tree. The totals for the reference positions are published
+// figures, so any mismatch points at a move generation bug (castling, en passant, promotion, pins).
+public final class Perft {
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final List<ReferencePosition> REFERENCE_POSITIONS = Collections.unmodifiableList(Arrays.asList(
+        new ReferencePosition("Initial position", START_FEN,
+            20L, 400L, 8902L, 197281L, 4865609L, 119060324L),
+        new ReferencePosition("Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            48L, 2039L, 97862L, 4085603L, 193690690L),
+        new ReferencePosition("Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            14L, 191L, 2812L, 43238L, 674624L, 11030083L),
+        new ReferencePosition("Position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            6L, 264L, 9467L, 422333L, 15833292L),
+        new ReferencePosition("Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            44L, 1486L, 62379L, 2103487L, 89941194L),
+        new ReferencePosition("Position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            46L, 2079L, 89890L, 3894594L, 164075551L)
+    ));
+
+    private Perft() {
+    }
+
+    public static long perft(ChessBoard board, int depth) {
+        if (depth <= 0) {
+            return 1L;
+        }
+        try (MoveList moves = MoveList.acquire()) {
+            int count = board.generateLegalMoves(board.getSideToMove(), moves);
+            if (depth == 1) {
+                return count;
+            }
+            long nodes = 0L;
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves.get(i));
+                nodes += perft(board, depth - 1);
+                board.unmakeMove();
+            }
+            return nodes;
+        }
+    }
+
+    // Node count below each root move, keyed by coordinate notation such as "e2e4".
+    public static Map<String, Long> divide(ChessBoard board, int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (depth <= 0) {
+            return result;
+        }
+        try (MoveList moves = MoveList.acquire()) {
+            int count = board.generateLegalMoves(board.getSideToMove(), moves);
+            for (int i = 0; i < count; i++) {
+                int move = moves.get(i);
+                board.makeMove(move);
+                result.put(Move.toString(move), perft(board, depth - 1));
+                board.unmakeMove();
+            }
+        }
+        return result;
+    }
+
+    // Splits the root moves across the pool; each task searches its own copy of the board.
+    public static long parallelPerft(ChessBoard board, int depth, ForkJoinPool pool) {
+        if (depth <= 1) {
+            return perft(board, depth);
+        }
+        List<SubtreeTask> tasks = new ArrayList<>();
+        try (MoveList moves = MoveList.acquire()) {
+            int count = board.generateLegalMoves(board.getSideToMove(), moves);
+            for (int i = 0; i < count; i++) {
+                tasks.add(new SubtreeTask(board, moves.get(i), depth - 1));
+            }
+        }
+        return pool.invoke(new RecursiveTask<Long>() {
+            @Override
+            protected Long compute() {
+                long nodes = 0L;
+                for (SubtreeTask task : invokeAll(tasks)) {
+                    nodes += task.join();
+                }
+                return nodes;
+            }
+        });
+    }
+
+    // Counts on the calling thread when pool is null, otherwise splits the root moves across pool.
+    public static PerftResult run(String fen, int depth, ForkJoinPool pool) {
+        ChessBoard board = ChessBoard.fromFen(fen);
+        long start = System.nanoTime();
+        long nodes = pool != null ? parallelPerft(board, depth, pool) : perft(board, depth);
+        long elapsedNanos = System.nanoTime() - start;
+        return new PerftResult(fen, depth, nodes, elapsedNanos, pool != null);
+    }
+
+    private static final class SubtreeTask extends RecursiveTask<Long> {
+        private final ChessBoard board;
+        private final int move;
+        private final int depth;
+
+        SubtreeTask(ChessBoard board, int move, int depth) {
+            this.board = new ChessBoard(board);
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            board.makeMove(move);
+            return perft(board, depth);
+        }
+    }
+
+    public static final class ReferencePosition {
+        private final String name;
+        private final String fen;
+        private final long[] expectedNodes; // index 0 holds depth 1
+
+        ReferencePosition(String name, String fen, long... expectedNodes) {
+            this.name = name;
+            this.fen = fen;
+            this.expectedNodes = expectedNodes;
+        }
+
+        public String getName() { return name; }
+        public String getFen() { return fen; }
+        public int getMaxDepth() { return expectedNodes.length; }
+
+        public long getExpectedNodes(int depth) {
+            if (depth < 1 || depth > expectedNodes.length) {
+                throw new IllegalArgumentException("No reference count for depth " + depth);
+            }
+            return expectedNodes[depth - 1];
+        }
+    }
+
+    public static final class PerftResult {
+        private final String fen;
+        private final int depth;
+        private final long nodes;
+        private final long elapsedNanos;
+        private final boolean parallel;
+
+        PerftResult(String fen, int depth, long nodes, long elapsedNanos, boolean parallel) {
+            this.fen = fen;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.parallel = parallel;
+        }
+
+        public String getFen() { return fen; }
+        public int getDepth() { return depth; }
+        public long getNodes() { return nodes; }
+        public boolean isParallel() { return parallel; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000L; }
+
+        public long getNodesPerSecond() {
+            return elapsedNanos > 0 ? nodes * 1_000_000_000L / elapsedNanos : nodes;
+        }
+    }
+}
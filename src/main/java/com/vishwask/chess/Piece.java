@@ -1,12 +1,74 @@
 package com.vishwask.chess;
 
-public class Piece {
-    private PieceType type;
-    private Color color;
+// There are only twelve distinct pieces, so every board shares the same immutable instances.
+public final class Piece {
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final Piece[] PIECES = new Piece[12]; // [color * 6 + type]
 
-    public Piece(PieceType type, Color color) {
+    // Unicode chess symbols run from U+2654 (white king) to U+265F (black pawn) in this type order.
+    private static final char FIRST_SYMBOL = '♔';
+    private static final PieceType[] SYMBOL_ORDER = {
+        PieceType.KING, PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT, PieceType.PAWN
+    };
+    private static final Piece[] BY_SYMBOL = new Piece[12];
+
+    static {
+        for (Color color : Color.values()) {
+            for (PieceType type : TYPES) {
+                PIECES[color.ordinal() * TYPES.length + type.ordinal()] = new Piece(type, color);
+            }
+        }
+        for (int i = 0; i < 12; i++) {
+            BY_SYMBOL[i] = of(SYMBOL_ORDER[i % 6], i < 6 ? Color.WHITE : Color.BLACK);
+        }
+    }
+
+    private final PieceType type;
+    private final Color color;
+    private final int index;
+    private final String symbol;
+    private final char fenChar;
+
+    private Piece(PieceType type, Color color) {
         this.type = type;
         this.color = color;
+        this.index = color.ordinal() * TYPES.length + type.ordinal();
+        int symbolOffset = java.util.Arrays.asList(SYMBOL_ORDER).indexOf(type) + (color == Color.WHITE ? 0 : 6);
+        this.symbol = String.valueOf((char) (FIRST_SYMBOL + symbolOffset));
+        char letter = type == PieceType.KNIGHT ? 'n' : Character.toLowerCase(type.name().charAt(0));
+        this.fenChar = color == Color.WHITE ? Character.toUpperCase(letter) : letter;
+    }
+
+    public static Piece of(PieceType type, Color color) {
+        return PIECES[color.ordinal() * TYPES.length + type.ordinal()];
+    }
+
+    // Looks up the piece for a bitboard index as produced by index().
+    public static Piece fromIndex(int index) {
+        return PIECES[index];
+    }
+
+    // Accepts the Unicode symbols stored in board state; returns null for anything else.
+    public static Piece fromSymbol(String symbol) {
+        if (symbol == null || symbol.length() != 1) {
+            return null;
+        }
+        int offset = symbol.charAt(0) - FIRST_SYMBOL;
+        return offset >= 0 && offset < BY_SYMBOL.length ? BY_SYMBOL[offset] : null;
+    }
+
+    // FEN letter, upper case for white ("N" is a white knight); returns null for anything else.
+    public static Piece fromFenChar(char c) {
+        Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+        switch (Character.toLowerCase(c)) {
+            case 'p': return of(PieceType.PAWN, color);
+            case 'n': return of(PieceType.KNIGHT, color);
+            case 'b': return of(PieceType.BISHOP, color);
+            case 'r': return of(PieceType.ROOK, color);
+            case 'q': return of(PieceType.QUEEN, color);
+            case 'k': return of(PieceType.KING, color);
+            default: return null;
+        }
     }
 
     public PieceType getType() {
@@ -17,17 +79,21 @@ public class Piece {
         return color;
     }
 
+    // color * 6 + type, the layout ChessBoard uses for its piece bitboards.
+    public int index() {
+        return index;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public char getFenChar() {
+        return fenChar;
+    }
+
     @Override
     public String toString() {
-        String symbol = "";
-        switch (type) {
-            case PAWN: symbol = color == Color.WHITE ? "♙" : "♟"; break;
-            case ROOK: symbol = color == Color.WHITE ? "♖" : "♜"; break;
-            case KNIGHT: symbol = color == Color.WHITE ? "♘" : "♞"; break;
-            case BISHOP: symbol = color == Color.WHITE ? "♗" : "♝"; break;
-            case QUEEN: symbol = color == Color.WHITE ? "♕" : "♛"; break;
-            case KING: symbol = color == Color.WHITE ? "♔" : "♚"; break;
-        }
         return symbol;
     }
-}
\ No newline at end of file
+}
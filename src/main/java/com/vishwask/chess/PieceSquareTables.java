@@ -0,0 +1,141 @@
+package com.vishwask.chess;
+
+// Material plus piece-square values for the middlegame and the endgame, and the game phase each piece
+// contributes. ChessBoard keeps running sums of these as pieces are put and removed, so an evaluation can
+// read them instead of scanning the board.
+//
+// The source tables are written from white's point of view with a8 first, matching the square numbering;
+// black reads them mirrored. The combined tables are indexed by Piece.index() and square, with black's
+// values negated, so the sums are always white minus black.
+public final class PieceSquareTables {
+
+    // Phase of the starting position: knights and bishops count 1, rooks 2, queens 4.
+    public static final int MAX_PHASE = 24;
+
+    // Indexed by PieceType ordinal: PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING.
+    private static final int[] MIDGAME_VALUES = {100, 500, 320, 330, 900, 0};
+    private static final int[] ENDGAME_VALUES = {120, 520, 300, 320, 950, 0};
+    private static final int[] PHASE_WEIGHTS = {0, 2, 1, 1, 4, 0};
+
+    private static final int[] PAWN_MIDGAME = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+         5,  5, 10, 25, 25, 10,  5,  5,
+         0,  0,  0, 20, 20,  0,  0,  0,
+         5, -5,-10,  0,  0,-10, -5,  5,
+         5, 10, 10,-20,-20, 10, 10,  5,
+         0,  0,  0,  0,  0,  0,  0,  0
+    };
+
+    // Passed or not, a pawn is worth more the closer it gets to promotion once the pieces are gone.
+    private static final int[] PAWN_ENDGAME = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+        80, 80, 80, 80, 80, 80, 80, 80,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        30, 30, 30, 30, 30, 30, 30, 30,
+        15, 15, 15, 15, 15, 15, 15, 15,
+         5,  5,  5,  5,  5,  5,  5,  5,
+         0,  0,  0,  0,  0,  0,  0,  0,
+         0,  0,  0,  0,  0,  0,  0,  0
+    };
+
+    private static final int[] KNIGHT = {
+        -50,-40,-30,-30,-30,-30,-40,-50,
+        -40,-20,  0,  0,  0,  0,-20,-40,
+        -30,  0, 10, 15, 15, 10,  0,-30,
+        -30,  5, 15, 20, 20, 15,  5,-30,
+        -30,  0, 15, 20, 20, 15,  0,-30,
+        -30,  5, 10, 15, 15, 10,  5,-30,
+        -40,-20,  0,  5,  5,  0,-20,-40,
+        -50,-40,-30,-30,-30,-30,-40,-50
+    };
+
+    private static final int[] BISHOP = {
+        -20,-10,-10,-10,-10,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5, 10, 10,  5,  0,-10,
+        -10,  5,  5, 10, 10,  5,  5,-10,
+        -10,  0, 10, 10, 10, 10,  0,-10,
+        -10, 10, 10, 10, 10, 10, 10,-10,
+        -10,  5,  0,  0,  0,  0,  5,-10,
+        -20,-10,-10,-10,-10,-10,-10,-20
+    };
+
+    private static final int[] ROOK = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+         5, 10, 10, 10, 10, 10, 10,  5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+         0,  0,  0,  5,  5,  0,  0,  0
+    };
+
+    private static final int[] QUEEN = {
+        -20,-10,-10, -5, -5,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5,  5,  5,  5,  0,-10,
+         -5,  0,  5,  5,  5,  5,  0, -5,
+          0,  0,  5,  5,  5,  5,  0, -5,
+        -10,  5,  5,  5,  5,  5,  0,-10,
+        -10,  0,  5,  0,  0,  0,  0,-10,
+        -20,-10,-10, -5, -5,-10,-10,-20
+    };
+
+    private static final int[] KING_MIDGAME = {
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -20,-30,-30,-40,-40,-30,-30,-20,
+        -10,-20,-20,-20,-20,-20,-20,-10,
+         20, 20,  0,  0,  0,  0, 20, 20,
+         20, 30, 10,  0,  0, 10, 30, 20
+    };
+
+    // In the endgame the king belongs in the centre.
+    private static final int[] KING_ENDGAME = {
+        -50,-40,-30,-20,-20,-30,-40,-50,
+        -30,-20,-10,  0,  0,-10,-20,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-30,  0,  0,  0,  0,-30,-30,
+        -50,-30,-30,-30,-30,-30,-30,-50
+    };
+
+    // [Piece.index()][square]
+    static final int[][] MIDGAME = new int[12][64];
+    static final int[][] ENDGAME = new int[12][64];
+    static final int[] PHASE = new int[12];
+
+    static {
+        int[][] midgame = {PAWN_MIDGAME, ROOK, KNIGHT, BISHOP, QUEEN, KING_MIDGAME};
+        int[][] endgame = {PAWN_ENDGAME, ROOK, KNIGHT, BISHOP, QUEEN, KING_ENDGAME};
+        for (PieceType type : PieceType.values()) {
+            int t = type.ordinal();
+            int white = Piece.of(type, Color.WHITE).index();
+            int black = Piece.of(type, Color.BLACK).index();
+            for (int sq = 0; sq < 64; sq++) {
+                MIDGAME[white][sq] = MIDGAME_VALUES[t] + midgame[t][sq];
+                ENDGAME[white][sq] = ENDGAME_VALUES[t] + endgame[t][sq];
+                MIDGAME[black][sq ^ 56] = -(MIDGAME_VALUES[t] + midgame[t][sq]);
+                ENDGAME[black][sq ^ 56] = -(ENDGAME_VALUES[t] + endgame[t][sq]);
+            }
+            PHASE[white] = PHASE_WEIGHTS[t];
+            PHASE[black] = PHASE_WEIGHTS[t];
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    // Blends the two scores by phase: all middlegame at MAX_PHASE or more, all endgame at 0.
+    public static int taper(int midgame, int endgame, int phase) {
+        int p = Math.min(phase, MAX_PHASE);
+        return (midgame * p + endgame * (MAX_PHASE - p)) / MAX_PHASE;
+    }
+}
@@ -18,6 +18,9 @@ public class Puzzle {
     private String boardState;
     
     private String turn; // WHITE or BLACK
+
+    @Column(length = 100)
+    private String fen; // starting position including side to move; puzzles never allow castling
     
     @Column(length = 500)
     private String solution; // JSON array of moves: [{"fromRow":6,"fromCol":4,"toRow":4,"toCol":4}]
@@ -141,4 +144,12 @@ public class Puzzle {
     public void setRatingHigh(Integer ratingHigh) {
         this.ratingHigh = ratingHigh;
     }
+
+    public String getFen() {
+        return fen;
+    }
+
+    public void setFen(String fen) {
+        this.fen = fen;
+    }
 }
@@ -48,6 +48,38 @@ public class PuzzleService {
         if (puzzleRepository.count() == 0) {
             seedPuzzles();
         }
+        backfillFen();
+    }
+
+    // Puzzles saved before the fen column existed get it computed from their board and turn.
+    private void backfillFen() {
+        for (Puzzle puzzle : puzzleRepository.findAll()) {
+            if (puzzle.getFen() != null || puzzle.getBoardState() == null) {
+                continue;
+            }
+            try {
+                List<List<String>> board = objectMapper.readValue(puzzle.getBoardState(), new TypeReference<List<List<String>>>() {});
+                puzzle.setFen(toFen(board, puzzle.getTurn()));
+                puzzleRepository.save(puzzle);
+            } catch (Exception e) {
+                // Leave the puzzle as is; the page rebuilds the position from the board state
+            }
+        }
+    }
+
+    // Position snapshot for a puzzle board; puzzles start without castling rights or an en-passant square.
+    private static String toFen(List<List<String>> boardState, String turn) {
+        String[][] grid = new String[8][8];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                String cell = row < boardState.size() && col < boardState.get(row).size() ? boardState.get(row).get(col) : null;
+                grid[row][col] = cell != null ? cell : "";
+            }
+        }
+        ChessBoard board = new ChessBoard(grid);
+        board.setSideToMove("BLACK".equalsIgnoreCase(turn) ? Color.BLACK : Color.WHITE);
+        board.setCastlingRights(0);
+        return board.toFen();
     }
 
     private void seedPuzzles() {
@@ -538,6 +570,7 @@ public class PuzzleService {
                 puzzle.setDescription(seed.description);
                 puzzle.setBoardState(boardJson);
                 puzzle.setTurn(seed.turn);
+                puzzle.setFen(toFen(seed.board, seed.turn));
                 puzzle.setSolution(movesJson);
                 puzzle.setDifficulty(seed.difficulty);
                 if (seed.ratingLow != null && seed.ratingHigh != null) {
@@ -736,6 +769,7 @@ public class PuzzleService {
             puzzle.setDescription(description != null ? description.trim() : "");
             puzzle.setBoardState(boardJson);
             puzzle.setTurn(normalizedTurn);
+            puzzle.setFen(toFen(normalizedBoard, normalizedTurn));
             puzzle.setSolution(movesJson);
             puzzle.setDifficulty(normalizedDifficulty);
             if (normalizedRatingLow != null && normalizedRatingHigh != null) {
@@ -894,6 +928,24 @@ public class PuzzleService {
 
         public MoveData() {}
 
+        public static MoveData fromMove(int move) {
+            MoveData data = new MoveData();
+            data.fromRow = Move.fromRow(move);
+            data.fromCol = Move.fromCol(move);
+            data.toRow = Move.toRow(move);
+            data.toCol = Move.toCol(move);
+            PieceType promotion = Move.promotion(move);
+            data.promotion = promotion != null ? promotion.name() : null;
+            return data;
+        }
+
+        // Compact form of this move; ChessBoard.findLegalMove turns it back into a playable move.
+        public int toCompactMove() {
+            PieceType promotionType = promotion == null || promotion.trim().isEmpty()
+                    ? null : PieceType.valueOf(promotion.trim().toUpperCase());
+            return Move.compact(fromRow, fromCol, toRow, toCol, promotionType);
+        }
+
         public int getFromRow() { return fromRow; }
         public void setFromRow(int fromRow) { this.fromRow = fromRow; }
         public int getFromCol() { return fromCol; }
@@ -25,6 +25,7 @@ public class SecurityConfig {
             .authorizeRequests()
                 .antMatchers("/h2-console/**").permitAll()
                 .antMatchers("/", "/register", "/login", "/css/**", "/js/**", "/vendor/**", "/img/**").permitAll()
+                .antMatchers("/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             .and()
                 .formLogin()
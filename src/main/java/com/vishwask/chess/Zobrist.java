@@ -0,0 +1,44 @@
+package com.vishwask.chess;
+
+// Random keys for Zobrist hashing. They come from a fixed-seed SplitMix64 sequence, so a position hashes
+// to the same value in every JVM and keys can be stored or shared between servers.
+final class Zobrist {
+    static final long[][] PIECE_SQUARE = new long[12][64]; // [color * 6 + type][square]
+    static final long BLACK_TO_MOVE;
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+
+    private static long state = 0x9E3779B97F4A7C15L;
+
+    static {
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                PIECE_SQUARE[piece][sq] = next();
+            }
+        }
+        BLACK_TO_MOVE = next();
+        long[] rights = {next(), next(), next(), next()};
+        for (int mask = 0; mask < 16; mask++) {
+            long key = 0L;
+            for (int bit = 0; bit < 4; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    key ^= rights[bit];
+                }
+            }
+            CASTLING[mask] = key;
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = next();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    private static long next() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
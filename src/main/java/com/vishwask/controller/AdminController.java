@@ -0,0 +1,134 @@
+package com.vishwask.controller;
+
+import com.vishwask.chess.*;
+import com.vishwask.engine.EngineScheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+@Controller
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final int MAX_PERFT_DEPTH = 6;
+
+    @Autowired
+    private EngineScheduler engineScheduler;
+
+    @Autowired
+    private GameService gameService;
+
+    @Value("${chess.admin.perft-threads:2}")
+    private int perftThreads;
+
+    // Parallel perft gets a pool of its own rather than the common pool, so an admin request can neither
+    // take more than these threads nor hold up other users of the common pool.
+    private ForkJoinPool perftPool;
+
+    @PostConstruct
+    public void start() {
+        perftPool = new ForkJoinPool(Math.max(1, perftThreads));
+    }
+
+    @PreDestroy
+    public void stop() {
+        perftPool.shutdownNow();
+    }
+
+    @GetMapping("/perft")
+    @ResponseBody
+    public ResponseEntity<PerftReport> perft(@RequestParam(name = "fen", defaultValue = Perft.START_FEN) String fen,
+                                             @RequestParam(name = "depth", defaultValue = "4") int depth,
+                                             @RequestParam(name = "parallel", defaultValue = "false") boolean parallel,
+                                             @RequestParam(name = "divide", defaultValue = "false") boolean divide) {
+        if (depth < 1 || depth > MAX_PERFT_DEPTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            Perft.PerftResult result = Perft.run(fen, depth, parallel ? perftPool : null);
+            Map<String, Long> breakdown = divide ? Perft.divide(ChessBoard.fromFen(fen), depth) : null;
+            return ResponseEntity.ok(new PerftReport(null, result, null, breakdown));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Runs every reference position up to the requested depth and flags any count that differs.
+    @GetMapping("/perft/suite")
+    @ResponseBody
+    public ResponseEntity<List<PerftReport>> perftSuite(@RequestParam(name = "depth", defaultValue = "3") int depth,
+                                                        @RequestParam(name = "parallel", defaultValue = "false") boolean parallel) {
+        if (depth < 1 || depth > MAX_PERFT_DEPTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<PerftReport> reports = new ArrayList<>();
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            int positionDepth = Math.min(depth, position.getMaxDepth());
+            Perft.PerftResult result = Perft.run(position.getFen(), positionDepth, parallel ? perftPool : null);
+            reports.add(new PerftReport(position.getName(), result, position.getExpectedNodes(positionDepth), null));
+        }
+        return ResponseEntity.ok(reports);
+    }
+
+    // Queue depth, wait times and load shedding of the engine scheduler, for monitoring.
+    @GetMapping("/engine/stats")
+    @ResponseBody
+    public EngineScheduler.Stats engineStats() {
+        return engineScheduler.getStats();
+    }
+
+    // Searches, nodes and CPU time spent on computer moves per difficulty level.
+    @GetMapping("/ai/usage")
+    @ResponseBody
+    public List<AIUsage.LevelUsage> aiUsage() {
+        return gameService.getAIUsage();
+    }
+
+    public static class PerftReport {
+        private final String name;
+        private final String fen;
+        private final int depth;
+        private final long nodes;
+        private final Long expectedNodes;
+        private final long elapsedMillis;
+        private final long nodesPerSecond;
+        private final boolean parallel;
+        private final Map<String, Long> divide;
+
+        public PerftReport(String name, Perft.PerftResult result, Long expectedNodes, Map<String, Long> divide) {
+            this.name = name;
+            this.fen = result.getFen();
+            this.depth = result.getDepth();
+            this.nodes = result.getNodes();
+            this.expectedNodes = expectedNodes;
+            this.elapsedMillis = result.getElapsedMillis();
+            this.nodesPerSecond = result.getNodesPerSecond();
+            this.parallel = result.isParallel();
+            this.divide = divide;
+        }
+
+        public String getName() { return name; }
+        public String getFen() { return fen; }
+        public int getDepth() { return depth; }
+        public long getNodes() { return nodes; }
+        public Long getExpectedNodes() { return expectedNodes; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public long getNodesPerSecond() { return nodesPerSecond; }
+        public boolean isParallel() { return parallel; }
+        public Map<String, Long> getDivide() { return divide; }
+
+        public Boolean getPassed() {
+            return expectedNodes == null ? null : expectedNodes == nodes;
+        }
+    }
+}
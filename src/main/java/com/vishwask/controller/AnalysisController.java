@@ -0,0 +1,228 @@
+package com.vishwask.controller;
+
+import com.vishwask.chess.*;
+import com.vishwask.engine.SearchLimits;
+import com.vishwask.engine.SearchResult;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+@Controller
+public class AnalysisController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnalysisController.class);
+    private static final int DEFAULT_DEPTH = 10;
+
+    @Autowired
+    private AnalysisService analysisService;
+
+    // Analyses a position given as a FEN or as a board grid with the side to move, to a depth or for a time
+    // (or both, whichever ends first), returning the best line and, with lines > 1, the best alternatives.
+    // Answered asynchronously, so waiting for the engine holds no request thread.
+    @PostMapping("/api/analyze")
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<AnalysisResponse>> analyze(@RequestBody AnalyzeRequest request,
+                                                                      Authentication auth) {
+        if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(AnalysisResponse.error("Please log in to analyse positions.")));
+        }
+        ChessBoard position;
+        SearchLimits limits;
+        try {
+            position = parsePosition(request);
+            limits = parseLimits(request);
+        } catch (IllegalArgumentException ex) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(AnalysisResponse.error(ex.getMessage())));
+        }
+        try {
+            String fen = position.toFen();
+            return analysisService.analyze(position, limits, auth.getName())
+                    .thenApply(result -> ResponseEntity.ok(new AnalysisResponse(fen, result)))
+                    .exceptionally(AnalysisController::failed);
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.completedFuture(busy());
+        }
+    }
+
+    // The engine turning the search away or stopping it for more urgent work is a busy engine; anything else
+    // is a fault in the search.
+    private static ResponseEntity<AnalysisResponse> failed(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof RejectedExecutionException || cause instanceof CancellationException) {
+            return busy();
+        }
+        LOG.error("Analysis failed", cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(AnalysisResponse.error("The analysis failed."));
+    }
+
+    private static ResponseEntity<AnalysisResponse> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(AnalysisResponse.error("The engine is busy. Try again shortly."));
+    }
+
+    private static ChessBoard parsePosition(AnalyzeRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("A position is required.");
+        }
+        ChessBoard board;
+        if (request.getFen() != null && !request.getFen().trim().isEmpty()) {
+            board = ChessBoard.fromFen(request.getFen());
+        } else if (request.getBoardState() != null) {
+            String[][] state = request.getBoardState();
+            if (state.length != 8) {
+                throw new IllegalArgumentException("Board state must have 8 rows.");
+            }
+            for (String[] row : state) {
+                if (row == null || row.length != 8) {
+                    throw new IllegalArgumentException("Board state rows must have 8 squares.");
+                }
+                for (int col = 0; col < 8; col++) {
+                    if (row[col] == null) {
+                        row[col] = "";
+                    }
+                }
+            }
+            board = new ChessBoard(state);
+            board.setSideToMove("BLACK".equalsIgnoreCase(request.getTurn()) ? Color.BLACK : Color.WHITE);
+        } else {
+            throw new IllegalArgumentException("Give the position as fen or boardState.");
+        }
+        for (Color color : Color.values()) {
+            if (Long.bitCount(board.getPieces(PieceType.KING, color)) != 1) {
+                throw new IllegalArgumentException("Each side needs exactly one king.");
+            }
+        }
+        Color waiting = board.getSideToMove() == Color.WHITE ? Color.BLACK : Color.WHITE;
+        if (board.isInCheck(waiting)) {
+            throw new IllegalArgumentException("The side not to move is in check.");
+        }
+        return board;
+    }
+
+    private static SearchLimits parseLimits(AnalyzeRequest request) {
+        Integer depth = request.getDepth();
+        Long timeMillis = request.getTimeMillis();
+        int lines = request.getLines() != null ? request.getLines() : 1;
+        if (depth != null && (depth < 1 || depth > AnalysisService.MAX_DEPTH)) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + AnalysisService.MAX_DEPTH + ".");
+        }
+        if (timeMillis != null && (timeMillis < 1 || timeMillis > AnalysisService.MAX_TIME_MILLIS)) {
+            throw new IllegalArgumentException("Time must be between 1 and " + AnalysisService.MAX_TIME_MILLIS + " ms.");
+        }
+        if (lines < 1 || lines > AnalysisService.MAX_LINES) {
+            throw new IllegalArgumentException("Lines must be between 1 and " + AnalysisService.MAX_LINES + ".");
+        }
+        SearchLimits limits;
+        if (timeMillis != null) {
+            limits = SearchLimits.time(timeMillis, timeMillis).withDepth(depth != null ? depth : AnalysisService.MAX_DEPTH);
+        } else {
+            limits = SearchLimits.depth(depth != null ? depth : DEFAULT_DEPTH);
+        }
+        return limits.withLines(lines);
+    }
+
+    public static class AnalyzeRequest {
+        private String fen;
+        private String[][] boardState;
+        private String turn;
+        private Integer depth;
+        private Long timeMillis;
+        private Integer lines;
+
+        public String getFen() { return fen; }
+        public void setFen(String fen) { this.fen = fen; }
+        public String[][] getBoardState() { return boardState; }
+        public void setBoardState(String[][] boardState) { this.boardState = boardState; }
+        public String getTurn() { return turn; }
+        public void setTurn(String turn) { this.turn = turn; }
+        public Integer getDepth() { return depth; }
+        public void setDepth(Integer depth) { this.depth = depth; }
+        public Long getTimeMillis() { return timeMillis; }
+        public void setTimeMillis(Long timeMillis) { this.timeMillis = timeMillis; }
+        public Integer getLines() { return lines; }
+        public void setLines(Integer lines) { this.lines = lines; }
+    }
+
+    // Scores are in centipawns from the point of view of the side to move.
+    public static class AnalysisResponse {
+        private final String fen;
+        private final String error;
+        private final Line best;
+        private final List<Line> lines;
+        private final long nodes;
+        private final long elapsedMillis;
+
+        public AnalysisResponse(String fen, SearchResult result) {
+            this.fen = fen;
+            this.error = null;
+            this.best = result.hasMove() ? new Line(result) : null;
+            this.lines = new ArrayList<>();
+            if (result.hasMove()) {
+                for (SearchResult line : result.getLines()) {
+                    lines.add(new Line(line));
+                }
+            }
+            this.nodes = result.getNodes();
+            this.elapsedMillis = result.getElapsedMillis();
+        }
+
+        private AnalysisResponse(String error) {
+            this.fen = null;
+            this.error = error;
+            this.best = null;
+            this.lines = null;
+            this.nodes = 0;
+            this.elapsedMillis = 0;
+        }
+
+        static AnalysisResponse error(String message) {
+            return new AnalysisResponse(message);
+        }
+
+        public String getFen() { return fen; }
+        public String getError() { return error; }
+        // Null when the side to move has no legal move.
+        public Line getBest() { return best; }
+        public List<Line> getLines() { return lines; }
+        public long getNodes() { return nodes; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+
+    public static class Line {
+        private final String move;
+        private final int score;
+        private final int mateIn;
+        private final int depth;
+        private final List<String> pv;
+
+        Line(SearchResult result) {
+            this.move = Move.toString(result.getBestMove());
+            this.score = result.getScore();
+            this.mateIn = result.getMateIn();
+            this.depth = result.getDepth();
+            this.pv = result.getPrincipalVariation();
+        }
+
+        public String getMove() { return move; }
+        public int getScore() { return score; }
+        // Moves to mate, negative when the side to move is mated; 0 when no mate was found.
+        public int getMateIn() { return mateIn; }
+        public int getDepth() { return depth; }
+        public List<String> getPv() { return pv; }
+    }
+}
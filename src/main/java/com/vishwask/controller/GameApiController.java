@@ -19,16 +19,16 @@ public class GameApiController {
     @Autowired
     private UserService userService;
 
+    // GameService broadcasts the move itself, ahead of the computer's reply, so nothing is sent from here.
     @MessageMapping("/game/{gameUuid}/move")
-    @SendTo("/topic/game/{gameUuid}")
-    public Game handleMove(@DestinationVariable String gameUuid,
+    public void handleMove(@DestinationVariable String gameUuid,
                           MoveMessage moveMessage,
                           Authentication auth) {
         if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
             throw new RuntimeException("Not authenticated");
         }
         User user = userService.findByUsername(auth.getName());
-        return gameService.makeMove(gameUuid, user,
+        gameService.makeMove(gameUuid, user,
                        moveMessage.getFromRow(),
                        moveMessage.getFromCol(),
                        moveMessage.getToRow(),
@@ -32,6 +32,7 @@ public class GameController {
     public String createGame(@RequestParam(name = "mode", defaultValue = "HUMAN") String mode,
                              @RequestParam(name = "playerColor", defaultValue = "WHITE") String playerColorStr,
                              @RequestParam(name = "timeControl", defaultValue = "NONE") String timeControl,
+                             @RequestParam(name = "difficulty", defaultValue = "CLUB") String difficulty,
                              Authentication auth) {
         if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
             return "redirect:/login";
@@ -40,7 +41,8 @@ public class GameController {
         Game game;
         if ("AI".equalsIgnoreCase(mode)) {
             Color playerColor = "BLACK".equalsIgnoreCase(playerColorStr) ? Color.BLACK : Color.WHITE;
-            game = gameService.createGameVsAi(user, playerColor);
+            AIDifficulty level = AIDifficulty.parse(difficulty, AIDifficulty.CLUB);
+            game = gameService.createGameVsAi(user, playerColor, parseTimeControl(timeControl), level);
             return "redirect:/game/" + game.getGameUuid();
         } else {
             Integer initialSeconds = parseTimeControl(timeControl);
@@ -0,0 +1,133 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.PieceType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Win/draw/loss table for one endgame where white has the king and the pieces in the name ("KPK", "KBNK")
+// and black a bare king. Every position is stored, two bits each and four to a byte, at
+//
+//   index = stm + 2 * (whiteKing + 64 * (blackKing + 64 * (piece0 + 64 * (piece1 ...))))
+//
+// with stm 0 for white to move and pieces in the order of the name. Values are from the side to move's
+// point of view; positions that cannot occur are marked ILLEGAL. Positions with black as the stronger side
+// are probed mirrored (see Bitbases). Tables are built by BitbaseGenerator and memory-mapped when read.
+public final class Bitbase {
+
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    public static final int ILLEGAL = 3;
+
+    // Canonical order of the stronger side's pieces in a table name.
+    static final String PIECE_LETTERS = "QRBNP";
+
+    private final String name;
+    private final PieceType[] pieces;
+    private final ByteBuffer data;
+
+    Bitbase(String name, ByteBuffer data) {
+        this.name = name;
+        this.pieces = parsePieces(name);
+        this.data = data;
+        if (data.capacity() != bytes(pieces.length)) {
+            throw new IllegalArgumentException(name + " needs " + bytes(pieces.length) + " bytes, got " + data.capacity());
+        }
+    }
+
+    public static Bitbase open(String name, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Bitbase(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // For tables packed inside a jar, which cannot be mapped in place: copies them to a temporary file first.
+    public static Bitbase open(String name, InputStream in) throws IOException {
+        Path copy = Files.createTempFile("bitbase-" + name, ".bin");
+        try {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            return open(name, copy);
+        } finally {
+            copy.toFile().deleteOnExit();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    PieceType[] getPieces() {
+        return pieces;
+    }
+
+    // squares holds the white pieces in name order; whiteToMove is from the table's point of view.
+    public int probe(boolean whiteToMove, int whiteKing, int blackKing, int[] squares) {
+        return value(index(whiteToMove ? 0 : 1, whiteKing, blackKing, squares));
+    }
+
+    int value(long index) {
+        return (data.get((int) (index >>> 2)) >>> ((index & 3) << 1)) & 3;
+    }
+
+    static long index(int stm, int whiteKing, int blackKing, int[] squares) {
+        long pieceSquares = 0;
+        for (int i = squares.length - 1; i >= 0; i--) {
+            pieceSquares = pieceSquares * 64 + squares[i];
+        }
+        return index(stm, whiteKing, blackKing, pieceSquares);
+    }
+
+    // pieceSquares holds the square of the k-th piece times 64^k, summed over the pieces.
+    static long index(int stm, int whiteKing, int blackKing, long pieceSquares) {
+        return stm + 2 * (whiteKing + 64 * (blackKing + 64 * pieceSquares));
+    }
+
+    static long positions(int pieceCount) {
+        return 2L << (6 * (pieceCount + 2));
+    }
+
+    static long bytes(int pieceCount) {
+        return positions(pieceCount) / 4;
+    }
+
+    // "KBNK" -> {BISHOP, KNIGHT}; only tables against a bare king, with the pieces in canonical order.
+    static PieceType[] parsePieces(String name) {
+        if (name.length() < 3 || !name.startsWith("K") || !name.endsWith("K")) {
+            throw new IllegalArgumentException("Not a king-and-pieces versus king endgame: " + name);
+        }
+        String letters = name.substring(1, name.length() - 1);
+        PieceType[] pieces = new PieceType[letters.length()];
+        int last = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            int order = PIECE_LETTERS.indexOf(letters.charAt(i));
+            if (order < last) {
+                throw new IllegalArgumentException("Pieces must be listed in the order " + PIECE_LETTERS + ": " + name);
+            }
+            last = order;
+            pieces[i] = PieceType.valueOf(pieceName(letters.charAt(i)));
+        }
+        return pieces;
+    }
+
+    static char letter(PieceType type) {
+        return type == PieceType.KNIGHT ? 'N' : type.name().charAt(0);
+    }
+
+    private static String pieceName(char letter) {
+        switch (letter) {
+            case 'Q': return "QUEEN";
+            case 'R': return "ROOK";
+            case 'B': return "BISHOP";
+            case 'N': return "KNIGHT";
+            case 'P': return "PAWN";
+            default: throw new IllegalArgumentException("Unknown piece " + letter);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.Attacks;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.PieceType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Builds a Bitbase by retrograde analysis. A first pass, spread over all cores, marks illegal positions,
+// mates and stalemates, resolves moves that leave the table (promotions and captures, looked up in smaller
+// tables) and counts each position's remaining moves. Then every won or lost position is taken back one
+// move at a time: a predecessor that can move into a loss is won, and one whose moves all lead to wins for
+// the opponent is lost. Whatever is left unresolved is a draw.
+//
+// Tables with up to two pieces besides the kings fit in memory; KBNK needs about 200 MB of heap. Run offline:
+//
+//   java -cp target/classes com.vishwask.engine.BitbaseGenerator <directory> [KQK KRK KPK KBNK ...]
+public final class BitbaseGenerator {
+
+    private static final int MAX_PIECES = 2;
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+    private final String name;
+    private final PieceType[] pieces;
+    private final Bitbases smaller;
+    private final int size;
+    private final byte[] values;
+    private final byte[] movesLeft;
+
+    private BitbaseGenerator(String name, Bitbases smaller) {
+        this.name = name;
+        this.pieces = Bitbase.parsePieces(name);
+        if (pieces.length > MAX_PIECES) {
+            throw new IllegalArgumentException(name + " has more than " + MAX_PIECES + " pieces besides the kings");
+        }
+        this.smaller = smaller;
+        this.size = (int) Bitbase.positions(pieces.length);
+        this.values = new byte[size];
+        this.movesLeft = new byte[size];
+    }
+
+    // smaller must hold every table this one converts into, e.g. KQK and KRK for KPK.
+    public static Bitbase generate(String name, Bitbases smaller) {
+        return new Bitbase(name, ByteBuffer.wrap(new BitbaseGenerator(name, smaller).run()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BitbaseGenerator <directory> [table ...]");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        List<String> names = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : Arrays.asList(Bitbases.STANDARD);
+        List<Bitbase> done = new ArrayList<>();
+        for (String name : names) {
+            long start = System.nanoTime();
+            byte[] packed = new BitbaseGenerator(name, Bitbases.of(done.toArray(new Bitbase[0]))).run();
+            Files.write(directory.resolve(name + ".bin"), packed);
+            done.add(new Bitbase(name, ByteBuffer.wrap(packed)));
+            System.out.printf("%s: %d positions in %d ms%n", name, Bitbase.positions(Bitbase.parsePieces(name).length),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private byte[] run() {
+        IntStream.range(0, size).parallel().forEach(this::initialise);
+
+        int[] queue = new int[size];
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (values[i] == Bitbase.WIN || values[i] == Bitbase.LOSS) {
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            tail = retract(queue[head], queue, tail);
+        }
+
+        byte[] packed = new byte[size / 4];
+        for (int i = 0; i < size; i++) {
+            packed[i >>> 2] |= values[i] << ((i & 3) << 1);
+        }
+        return packed;
+    }
+
+    private void initialise(int i) {
+        if (!isLegal(i)) {
+            values[i] = Bitbase.ILLEGAL;
+            return;
+        }
+        long occupied = occupied(i);
+        int whiteKing = whiteKing(i);
+        int blackKing = blackKing(i);
+        int moves = 0;
+        int losing = 0;
+        boolean winning = false;
+        if ((i & 1) == 0) {
+            moves += Long.bitCount(Attacks.king(whiteKing) & ~occupied & ~Attacks.king(blackKing));
+            for (int k = 0; k < pieces.length; k++) {
+                int sq = piece(i, k);
+                if (pieces[k] != PieceType.PAWN) {
+                    moves += Long.bitCount(attacks(pieces[k], sq, occupied) & ~occupied);
+                    continue;
+                }
+                int to = sq - 8;
+                if ((occupied & 1L << to) != 0) {
+                    continue;
+                }
+                if (to < 8) {
+                    for (PieceType promotion : PROMOTIONS) {
+                        PieceType[] types = pieces.clone();
+                        types[k] = promotion;
+                        int value = lookup(types, squares(i, k, to), 1, whiteKing, blackKing);
+                        moves++;
+                        winning |= value == Bitbase.LOSS;
+                        losing += value == Bitbase.WIN ? 1 : 0;
+                    }
+                } else {
+                    moves++;
+                    if (sq >= 48 && (occupied & 1L << (to - 8)) == 0) {
+                        moves++;
+                    }
+                }
+            }
+        } else {
+            long targets = Attacks.king(blackKing) & ~Attacks.king(whiteKing);
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                int captured = pieceAt(i, to);
+                if (whiteAttacks(i, to, occupied & ~(1L << blackKing), captured)) {
+                    continue;
+                }
+                moves++;
+                if (captured >= 0) {
+                    PieceType[] types = new PieceType[pieces.length - 1];
+                    int[] squares = new int[pieces.length - 1];
+                    for (int k = 0, j = 0; k < pieces.length; k++) {
+                        if (k != captured) {
+                            types[j] = pieces[k];
+                            squares[j++] = piece(i, k);
+                        }
+                    }
+                    int value = lookup(types, squares, 0, whiteKing, to);
+                    winning |= value == Bitbase.LOSS;
+                    losing += value == Bitbase.WIN ? 1 : 0;
+                }
+            }
+        }
+
+        if (moves == 0) {
+            boolean mated = (i & 1) == 1 && whiteAttacks(i, blackKing, occupied, -1);
+            values[i] = (byte) (mated ? Bitbase.LOSS : Bitbase.DRAW);
+        } else if (winning) {
+            values[i] = Bitbase.WIN;
+        } else if (losing == moves) {
+            values[i] = Bitbase.LOSS;
+        } else {
+            movesLeft[i] = (byte) (moves - losing);
+        }
+    }
+
+    // Takes back every move that could have led to position i and updates the positions before it.
+    private int retract(int i, int[] queue, int tail) {
+        long occupied = occupied(i);
+        int whiteKing = whiteKing(i);
+        int blackKing = blackKing(i);
+        int value = values[i];
+        if ((i & 1) == 1) {
+            long from = Attacks.king(whiteKing) & ~occupied & ~Attacks.king(blackKing);
+            while (from != 0) {
+                tail = update(withWhiteKing(i, Long.numberOfTrailingZeros(from)) ^ 1, value, queue, tail);
+                from &= from - 1;
+            }
+            for (int k = 0; k < pieces.length; k++) {
+                int sq = piece(i, k);
+                if (pieces[k] != PieceType.PAWN) {
+                    long sources = attacks(pieces[k], sq, occupied) & ~occupied;
+                    while (sources != 0) {
+                        tail = update(withPiece(i, k, Long.numberOfTrailingZeros(sources)) ^ 1, value, queue, tail);
+                        sources &= sources - 1;
+                    }
+                } else if (sq + 8 < 56 && (occupied & 1L << (sq + 8)) == 0) {
+                    tail = update(withPiece(i, k, sq + 8) ^ 1, value, queue, tail);
+                    if (sq >> 3 == 4 && (occupied & 1L << (sq + 16)) == 0) {
+                        tail = update(withPiece(i, k, sq + 16) ^ 1, value, queue, tail);
+                    }
+                }
+            }
+        } else {
+            long from = Attacks.king(blackKing) & ~occupied & ~Attacks.king(whiteKing);
+            while (from != 0) {
+                tail = update(withBlackKing(i, Long.numberOfTrailingZeros(from)) ^ 1, value, queue, tail);
+                from &= from - 1;
+            }
+        }
+        return tail;
+    }
+
+    private int update(int previous, int successor, int[] queue, int tail) {
+        if (values[previous] != Bitbase.DRAW || movesLeft[previous] == 0 || !isLegal(previous)) {
+            return tail;
+        }
+        if (successor == Bitbase.LOSS) {
+            values[previous] = Bitbase.WIN;
+        } else if (--movesLeft[previous] == 0) {
+            values[previous] = Bitbase.LOSS;
+        } else {
+            return tail;
+        }
+        queue[tail] = previous;
+        return tail + 1;
+    }
+
+    // A smaller table's value, or a draw when white is left with at most one minor piece.
+    private int lookup(PieceType[] types, int[] squares, int stm, int whiteKing, int blackKing) {
+        Integer[] order = new Integer[types.length];
+        for (int k = 0; k < order.length; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> Bitbase.PIECE_LETTERS.indexOf(Bitbase.letter(types[a]))
+                - Bitbase.PIECE_LETTERS.indexOf(Bitbase.letter(types[b])));
+        StringBuilder table = new StringBuilder("K");
+        int[] sorted = new int[squares.length];
+        for (int k = 0; k < order.length; k++) {
+            table.append(Bitbase.letter(types[order[k]]));
+            sorted[k] = squares[order[k]];
+        }
+        if (types.length == 0 || (types.length == 1 && (types[0] == PieceType.BISHOP || types[0] == PieceType.KNIGHT))) {
+            return Bitbase.DRAW;
+        }
+        Bitbase bitbase = smaller.get(table.append('K').toString());
+        if (bitbase == null) {
+            throw new IllegalStateException(table + " is needed to generate " + name);
+        }
+        return bitbase.value(Bitbase.index(stm, whiteKing, blackKing, sorted));
+    }
+
+    // Distinct squares, no pawn on the first or last rank, kings apart, and the side not to move not in check.
+    private boolean isLegal(int i) {
+        long occupied = occupied(i);
+        if (Long.bitCount(occupied) != pieces.length + 2) {
+            return false;
+        }
+        for (int k = 0; k < pieces.length; k++) {
+            int row = piece(i, k) >> 3;
+            if (pieces[k] == PieceType.PAWN && (row == 0 || row == 7)) {
+                return false;
+            }
+        }
+        if ((Attacks.king(whiteKing(i)) & 1L << blackKing(i)) != 0) {
+            return false;
+        }
+        return (i & 1) == 1 || !whiteAttacks(i, blackKing(i), occupied, -1);
+    }
+
+    // Whether white's pieces, other than the one at index skip, attack sq; kings are left out.
+    private boolean whiteAttacks(int i, int sq, long occupied, int skip) {
+        for (int k = 0; k < pieces.length; k++) {
+            if (k != skip && (attacks(pieces[k], piece(i, k), occupied) & 1L << sq) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long attacks(PieceType type, int sq, long occupied) {
+        switch (type) {
+            case PAWN: return Attacks.pawn(Color.WHITE, sq);
+            case KNIGHT: return Attacks.knight(sq);
+            case BISHOP: return Attacks.bishop(sq, occupied);
+            case ROOK: return Attacks.rook(sq, occupied);
+            case QUEEN: return Attacks.queen(sq, occupied);
+            default: throw new IllegalArgumentException("No table piece " + type);
+        }
+    }
+
+    private long occupied(int i) {
+        long occupied = 1L << whiteKing(i) | 1L << blackKing(i);
+        for (int k = 0; k < pieces.length; k++) {
+            occupied |= 1L << piece(i, k);
+        }
+        return occupied;
+    }
+
+    private int pieceAt(int i, int sq) {
+        for (int k = 0; k < pieces.length; k++) {
+            if (piece(i, k) == sq) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    // The piece squares of position i, with piece k moved to sq.
+    private int[] squares(int i, int k, int sq) {
+        int[] squares = new int[pieces.length];
+        for (int j = 0; j < squares.length; j++) {
+            squares[j] = j == k ? sq : piece(i, j);
+        }
+        return squares;
+    }
+
+    // Field layout of Bitbase.index: stm in bit 0, then six bits each for the kings and pieces.
+    private static int whiteKing(int i) {
+        return (i >>> 1) & 63;
+    }
+
+    private static int blackKing(int i) {
+        return (i >>> 7) & 63;
+    }
+
+    private static int piece(int i, int k) {
+        return (i >>> (13 + 6 * k)) & 63;
+    }
+
+    private static int withWhiteKing(int i, int sq) {
+        return (i & ~(63 << 1)) | sq << 1;
+    }
+
+    private static int withBlackKing(int i, int sq) {
+        return (i & ~(63 << 7)) | sq << 7;
+    }
+
+    private static int withPiece(int i, int k, int sq) {
+        int shift = 13 + 6 * k;
+        return (i & ~(63 << shift)) | sq << shift;
+    }
+}
@@ -0,0 +1,134 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.PieceType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// The endgame tables an engine can probe, keyed by name. Positions are matched to a table by material:
+// one side with a bare king, the other with the table's pieces. When black is the stronger side the board
+// is mirrored top to bottom and the colours swapped, so each table covers both.
+//
+// Probed at search nodes once few pieces remain, so probe allocates nothing: the tables are also listed by
+// material signature, the piece counts of the stronger side packed into an int, and found by a scan of the
+// handful there are.
+public final class Bitbases {
+
+    public static final int UNKNOWN = -1;
+
+    // Tables the configuration looks for, smallest first; KPK is built from KQK and KRK.
+    public static final String[] STANDARD = {"KQK", "KRK", "KPK", "KBNK"};
+
+    private static final PieceType[] CANONICAL = {
+        PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT, PieceType.PAWN
+    };
+
+    private final Map<String, Bitbase> tables;
+    private final int[] signatures;
+    private final Bitbase[] bySignature;
+    private final int maxPieces;
+
+    private Bitbases(Map<String, Bitbase> tables) {
+        this.tables = tables;
+        this.signatures = new int[tables.size()];
+        this.bySignature = new Bitbase[tables.size()];
+        int max = 0;
+        int i = 0;
+        for (Bitbase table : tables.values()) {
+            max = Math.max(max, table.getPieces().length + 2);
+            int signature = 0;
+            for (PieceType type : table.getPieces()) {
+                signature += 1 << (4 * ordinal(type));
+            }
+            signatures[i] = signature;
+            bySignature[i++] = table;
+        }
+        this.maxPieces = max;
+    }
+
+    public static Bitbases none() {
+        return new Bitbases(Collections.emptyMap());
+    }
+
+    public static Bitbases of(Bitbase... tables) {
+        Map<String, Bitbase> byName = new HashMap<>();
+        for (Bitbase table : tables) {
+            byName.put(table.getName(), table);
+        }
+        return new Bitbases(Collections.unmodifiableMap(byName));
+    }
+
+    public Bitbase get(String name) {
+        return tables.get(name);
+    }
+
+    public int size() {
+        return tables.size();
+    }
+
+    // Pieces on the board, kings included, in the largest table; positions with more need not be probed.
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    // Bitbase.WIN, DRAW or LOSS for the side to move, or UNKNOWN when no table covers the position.
+    // Positions with castling rights, or without exactly one king a side, are not covered.
+    public int probe(ChessBoard board) {
+        if (tables.isEmpty() || Long.bitCount(board.getOccupied()) > maxPieces || board.getCastlingRights() != 0
+                || Long.bitCount(board.getPieces(PieceType.KING, Color.WHITE)) != 1
+                || Long.bitCount(board.getPieces(PieceType.KING, Color.BLACK)) != 1) {
+            return UNKNOWN;
+        }
+        Color strong;
+        if (Long.bitCount(board.getPieces(Color.BLACK)) == 1) {
+            strong = Color.WHITE;
+        } else if (Long.bitCount(board.getPieces(Color.WHITE)) == 1) {
+            strong = Color.BLACK;
+        } else {
+            return UNKNOWN;
+        }
+        Color weak = strong == Color.WHITE ? Color.BLACK : Color.WHITE;
+
+        int signature = 0;
+        for (int t = 0; t < CANONICAL.length; t++) {
+            signature += Long.bitCount(board.getPieces(CANONICAL[t], strong)) << (4 * t);
+        }
+        Bitbase table = null;
+        for (int i = 0; i < signatures.length; i++) {
+            if (signatures[i] == signature) {
+                table = bySignature[i];
+                break;
+            }
+        }
+        if (table == null) {
+            return UNKNOWN;
+        }
+        int flip = strong == Color.WHITE ? 0 : 56;
+        long pieceSquares = 0;
+        long scale = 1;
+        for (PieceType type : CANONICAL) {
+            long pieces = board.getPieces(type, strong);
+            while (pieces != 0) {
+                pieceSquares += (Long.numberOfTrailingZeros(pieces) ^ flip) * scale;
+                scale *= 64;
+                pieces &= pieces - 1;
+            }
+        }
+        int strongKing = Long.numberOfTrailingZeros(board.getPieces(PieceType.KING, strong)) ^ flip;
+        int weakKing = Long.numberOfTrailingZeros(board.getPieces(PieceType.KING, weak)) ^ flip;
+        int value = table.value(Bitbase.index(board.getSideToMove() == strong ? 0 : 1, strongKing, weakKing, pieceSquares));
+        return value == Bitbase.ILLEGAL ? UNKNOWN : value;
+    }
+
+    private static int ordinal(PieceType type) {
+        for (int t = 0; t < CANONICAL.length; t++) {
+            if (CANONICAL[t] == type) {
+                return t;
+            }
+        }
+        throw new IllegalArgumentException("No table piece " + type);
+    }
+}
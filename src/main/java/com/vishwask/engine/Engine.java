@@ -0,0 +1,206 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.ChessBoard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Negamax alpha-beta search over ChessBoard. An Engine may be shared between threads: each call to search
+// works on its own copy of the position and the tables of the thread running it. The transposition table is
+// the one thing searches share, so its size bounds the engine's memory however many games are being played;
+// only searches with evaluation noise take a small table of their own for their duration.
+//
+// A search asking for more than one thread runs helpers next to the calling thread (Lazy SMP). Helpers come
+// from a pool whose size is the engine-wide limit; when it is used up a search runs with fewer helpers
+// rather than waiting for them. A node limit applies to the threads of a search together.
+//
+// Interrupting the thread that called search stops it within a few thousand nodes; it returns the best move
+// found so far and leaves the interrupt status set for the caller to act on.
+public class Engine implements AutoCloseable {
+
+    public static final int MATE_SCORE = 32000;
+    public static final int MAX_PLY = 128;
+    public static final int DEFAULT_HASH_MB = 16;
+    static final int INFINITY = 32767;
+    private static final int[] NO_MOVES = new int[0];
+
+    private final TranspositionTable table;
+    private final EngineOptions options;
+    private final Bitbases bitbases;
+    private final int maxHelperThreads;
+    private final Semaphore helperSlots;
+    private final ExecutorService helpers;
+
+    public Engine() {
+        this(DEFAULT_HASH_MB, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    public Engine(int hashMb) {
+        this(hashMb, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    // hashMb is clamped to TranspositionTable.MAX_SIZE_MB and a quarter of the maximum heap; maxHelperThreads
+    // is the number of helper threads all concurrent searches may use together.
+    public Engine(int hashMb, int maxHelperThreads) {
+        this(hashMb, maxHelperThreads, EngineOptions.DEFAULT);
+    }
+
+    public Engine(int hashMb, int maxHelperThreads, EngineOptions options) {
+        this(hashMb, maxHelperThreads, options, Bitbases.none());
+    }
+
+    // Positions covered by bitbases are scored from the tables instead of being searched.
+    public Engine(int hashMb, int maxHelperThreads, EngineOptions options, Bitbases bitbases) {
+        this.table = new TranspositionTable(hashMb);
+        this.options = options;
+        this.bitbases = bitbases;
+        this.maxHelperThreads = Math.max(0, maxHelperThreads);
+        this.helperSlots = new Semaphore(this.maxHelperThreads);
+        AtomicInteger counter = new AtomicInteger();
+        this.helpers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "engine-helper-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // With more than one line asked for, the root is searched again for each line with the moves heading the
+    // earlier lines left out; the lines share the table, so later ones start from what the first one found.
+    public SearchResult search(ChessBoard position, SearchLimits limits) {
+        return search(position, limits, null);
+    }
+
+    // Searches on the given clock instead of the time budgets of limits, so the deadlines can be moved while
+    // the search runs. All lines of a multi-PV search then share its deadlines. A null clock starts one from
+    // limits for each line.
+    public SearchResult search(ChessBoard position, SearchLimits limits, SearchClock clock) {
+        // A noisy search gets a table of its own and one noise seed for all its threads and lines, so every
+        // score in that table was evaluated with the same noise.
+        TranspositionTable searchTable = limits.getEvalNoise() == 0 ? table : TranspositionTable.forSearch(limits.getNodes());
+        long noiseSeed = ThreadLocalRandom.current().nextLong();
+        if (limits.getLines() == 1) {
+            return searchLine(position, limits, clock, searchTable, noiseSeed, NO_MOVES);
+        }
+        SearchLimits perLine = limits;
+        if (limits.isTimed()) {
+            perLine = limits.withTime(Math.max(limits.getSoftMillis() / limits.getLines(), 1),
+                    Math.max(limits.getHardMillis() / limits.getLines(), 1));
+        }
+        List<SearchResult> lines = new ArrayList<>(limits.getLines());
+        int[] excluded = NO_MOVES;
+        while (lines.size() < limits.getLines()) {
+            SearchResult line = searchLine(position, perLine, clock, searchTable, noiseSeed, excluded);
+            if (!line.hasMove()) {
+                if (lines.isEmpty()) {
+                    return line;
+                }
+                break;
+            }
+            lines.add(line);
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            excluded = Arrays.copyOf(excluded, excluded.length + 1);
+            excluded[excluded.length - 1] = line.getBestMove();
+        }
+        return SearchResult.ofLines(lines);
+    }
+
+    private SearchResult searchLine(ChessBoard position, SearchLimits limits, SearchClock clock,
+                                    TranspositionTable searchTable, long noiseSeed, int[] excludedRootMoves) {
+        searchTable.newSearch();
+        SearchClock lineClock = clock != null ? clock : new SearchClock(limits);
+        int helperCount = reserveHelpers(limits.getThreads() - 1);
+        AtomicBoolean abort = new AtomicBoolean();
+        AtomicLong nodes = new AtomicLong();
+        List<Searcher> helperSearchers = new ArrayList<>(helperCount);
+        List<Future<?>> running = new ArrayList<>(helperCount);
+        try {
+            for (int i = 1; i <= helperCount; i++) {
+                Searcher helper = new Searcher(position, limits, searchTable, options, bitbases, abort, nodes, lineClock, noiseSeed, i);
+                helper.excludeRootMoves(excludedRootMoves);
+                helperSearchers.add(helper);
+                running.add(helpers.submit(helper::search));
+            }
+            Searcher main = new Searcher(position, limits, searchTable, options, bitbases, abort, nodes, lineClock, noiseSeed, 0);
+            main.excludeRootMoves(excludedRootMoves);
+            SearchResult result = main.search();
+            abort.set(true);
+            awaitHelpers(running);
+            long helperNodes = 0;
+            long cpuNanos = main.getCpuNanos();
+            for (Searcher helper : helperSearchers) {
+                helperNodes += helper.getNodes();
+                cpuNanos = SearchResult.addCpuNanos(cpuNanos, helper.getCpuNanos());
+            }
+            return result.withHelpers(helperNodes, helperCount).withCpuNanos(cpuNanos);
+        } finally {
+            abort.set(true);
+            helperSlots.release(helperCount);
+        }
+    }
+
+    public long getHashSizeBytes() {
+        return table.sizeBytes();
+    }
+
+    public EngineOptions getOptions() {
+        return options;
+    }
+
+    public Bitbases getBitbases() {
+        return bitbases;
+    }
+
+    public int getMaxHelperThreads() {
+        return maxHelperThreads;
+    }
+
+    // Forgets all stored results, e.g. between unrelated test positions.
+    public void clearHash() {
+        table.clear();
+    }
+
+    @Override
+    public void close() {
+        helpers.shutdownNow();
+    }
+
+    private int reserveHelpers(int wanted) {
+        int reserved = 0;
+        while (reserved < wanted && helperSlots.tryAcquire()) {
+            reserved++;
+        }
+        return reserved;
+    }
+
+    // Helpers stop within a few thousand nodes of the abort flag; their slots are only released afterwards.
+    private static void awaitHelpers(List<Future<?>> running) {
+        boolean interrupted = false;
+        for (Future<?> future : running) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    throw new IllegalStateException("Helper search failed", ex.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
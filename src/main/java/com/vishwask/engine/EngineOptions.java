@@ -0,0 +1,53 @@
+package com.vishwask.engine;
+
+// Switches for the selective parts of the search, so their effect on time-to-depth can be measured one at a
+// time. Everything is on by default. Instances are immutable; the with* methods return adjusted copies.
+public final class EngineOptions {
+
+    public static final EngineOptions DEFAULT = new EngineOptions(true, true, true, true);
+
+    private final boolean nullMove;
+    private final boolean lateMoveReductions;
+    private final boolean futilityPruning;
+    private final boolean aspirationWindows;
+
+    private EngineOptions(boolean nullMove, boolean lateMoveReductions, boolean futilityPruning,
+                          boolean aspirationWindows) {
+        this.nullMove = nullMove;
+        this.lateMoveReductions = lateMoveReductions;
+        this.futilityPruning = futilityPruning;
+        this.aspirationWindows = aspirationWindows;
+    }
+
+    // Plain alpha-beta with quiescence, the baseline for measurements.
+    public static EngineOptions none() {
+        return new EngineOptions(false, false, false, false);
+    }
+
+    public EngineOptions withNullMove(boolean enabled) {
+        return new EngineOptions(enabled, lateMoveReductions, futilityPruning, aspirationWindows);
+    }
+
+    public EngineOptions withLateMoveReductions(boolean enabled) {
+        return new EngineOptions(nullMove, enabled, futilityPruning, aspirationWindows);
+    }
+
+    public EngineOptions withFutilityPruning(boolean enabled) {
+        return new EngineOptions(nullMove, lateMoveReductions, enabled, aspirationWindows);
+    }
+
+    public EngineOptions withAspirationWindows(boolean enabled) {
+        return new EngineOptions(nullMove, lateMoveReductions, futilityPruning, enabled);
+    }
+
+    public boolean isNullMove() { return nullMove; }
+    public boolean isLateMoveReductions() { return lateMoveReductions; }
+    public boolean isFutilityPruning() { return futilityPruning; }
+    public boolean isAspirationWindows() { return aspirationWindows; }
+
+    @Override
+    public String toString() {
+        return "nullMove=" + nullMove + ", lateMoveReductions=" + lateMoveReductions
+                + ", futilityPruning=" + futilityPruning + ", aspirationWindows=" + aspirationWindows;
+    }
+}
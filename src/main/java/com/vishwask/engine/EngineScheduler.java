@@ -0,0 +1,538 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.ChessBoard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Runs every search of the application on a fixed set of worker threads, so the number of games being
+// played does not change how many cores the engine uses.
+//
+// Jobs are queued by priority class and, within a class, by owner (a game, a user); workers take the most
+// urgent class first and serve its owners round-robin, one job per turn, so one busy game cannot starve the
+// others. The queue is bounded. As it fills, searches are shortened instead of left waiting longer: a job
+// started with other jobs queued runs without helper threads, its depth is capped the more the fuller the
+// queue is, and time spent queued is taken off a timed budget. A job arriving at a full queue displaces a
+// queued job of a lower class; if there is none, a live job is still queued, shortened to MIN_DEPTH, in
+// headroom kept for live jobs beyond the capacity, and anything else is rejected. Searches only ever run on
+// the workers, never on the submitting thread.
+//
+// Ponder searches only use spare capacity: when other work is queued and no worker is free, a running
+// ponder search is cancelled to make room. Background searches give way to live ones the same way, once
+// there is no ponder search left to stop. A ponder search whose result turns out to be wanted after all can
+// be promoted to a live one instead of being searched again.
+public class EngineScheduler implements AutoCloseable {
+
+    // In order of precedence.
+    public enum Priority {
+        LIVE,
+        BACKGROUND,
+        PONDER
+    }
+
+    // Depth of searches run under full load, and the cap reached as the queue starts to fill.
+    public static final int MIN_DEPTH = 2;
+    static final int LOADED_DEPTH = 8;
+
+    private final Engine engine;
+    private final int capacity;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final List<LinkedHashMap<String, ArrayDeque<Job>>> queues = new ArrayList<>();
+    private final int[] queuedByPriority = new int[Priority.values().length];
+    private final List<Job> active = new ArrayList<>();
+    private int queued;
+    private int running;
+    private int busyWorkers;
+    private boolean closed;
+
+    private long submitted;
+    private long completed;
+    private long degraded;
+    private long rejected;
+    private long overflow;
+    private long preempted;
+    private long promoted;
+    private long waitNanos;
+    private long maxWaitNanos;
+    private long started;
+
+    public EngineScheduler(Engine engine, int workerCount, int capacity) {
+        this.engine = engine;
+        this.capacity = Math.max(1, capacity);
+        for (int i = 0; i < Priority.values().length; i++) {
+            queues.add(new LinkedHashMap<>());
+        }
+        for (int i = 1; i <= Math.max(1, workerCount); i++) {
+            Thread worker = new Thread(this::work, "engine-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    // Queues a search of a copy of position. Throws RejectedExecutionException for a non-live job that does
+    // not fit, or when the scheduler is closed.
+    public Job submit(String owner, Priority priority, ChessBoard position, SearchLimits limits) {
+        Job job = new Job(owner, priority, new ChessBoard(position), limits);
+        Job displaced = null;
+        Job stopped = null;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("Engine scheduler is closed");
+            }
+            submitted++;
+            if (queued >= capacity) {
+                displaced = evictBelow(priority);
+            }
+            if (queued >= capacity) {
+                if (priority != Priority.LIVE || queued >= capacity + liveHeadroom()) {
+                    rejected++;
+                    throw new RejectedExecutionException("Engine queue is full");
+                }
+                overflow++;
+                degraded++;
+                job.limits = shorten(job.limits, MIN_DEPTH);
+            }
+            enqueue(job);
+            stopped = preemptFor(job);
+        } finally {
+            lock.unlock();
+        }
+        // Futures are completed outside the lock: their callbacks may submit again or take the caller's locks.
+        if (displaced != null) {
+            displaced.future.completeExceptionally(new RejectedExecutionException("Displaced by a more urgent search"));
+            displaced.finished.complete(displaced);
+        }
+        if (stopped != null) {
+            stopped.future.cancel(false);
+        }
+        return job;
+    }
+
+    // Blocking form of submit for callers with nothing else to do meanwhile. Interrupting the caller cancels
+    // the job and throws CancellationException with the interrupt status kept.
+    public SearchResult search(String owner, Priority priority, ChessBoard position, SearchLimits limits) {
+        Job job = submit(owner, priority, position, limits);
+        try {
+            return job.getFuture().get();
+        } catch (InterruptedException ex) {
+            job.cancel();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the search");
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : new IllegalStateException(ex.getCause());
+        }
+    }
+
+    // Raises a queued or running job to live priority with the given limits, e.g. a ponder search on the
+    // position the opponent has now actually reached. A queued job is queued again as if submitted live with
+    // these limits. A running one keeps its depth and node limits but can no longer be preempted, and its
+    // clock restarts with the time budgets of limits. False when the job has finished or is being stopped.
+    public boolean promote(Job job, SearchLimits limits) {
+        Job stopped = null;
+        lock.lock();
+        try {
+            if (job.future.isDone() || job.stopped) {
+                return false;
+            }
+            if (job.runner == null) {
+                if (!unlink(job)) {
+                    return false; // finished, the result not handed over yet
+                }
+                job.priority = Priority.LIVE;
+                job.limits = limits;
+                enqueue(job);
+                stopped = preemptFor(job);
+            } else {
+                job.priority = Priority.LIVE;
+                job.clock.setBudget(limits);
+            }
+            promoted++;
+        } finally {
+            lock.unlock();
+        }
+        if (stopped != null) {
+            stopped.future.cancel(false);
+        }
+        return true;
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Job> dropped = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            for (Map<String, ArrayDeque<Job>> byOwner : queues) {
+                for (ArrayDeque<Job> jobs : byOwner.values()) {
+                    dropped.addAll(jobs);
+                }
+                byOwner.clear();
+            }
+            queued = 0;
+            Arrays.fill(queuedByPriority, 0);
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Job job : dropped) {
+            job.future.cancel(false);
+            job.finished.complete(job);
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void enqueue(Job job) {
+        queues.get(job.priority.ordinal()).computeIfAbsent(job.owner, owner -> new ArrayDeque<>()).add(job);
+        queuedByPriority[job.priority.ordinal()]++;
+        queued++;
+        job.queuedAt = System.nanoTime();
+        available.signal();
+    }
+
+    // Unqueues the newest job of the least urgent class below priority, making room for a more urgent one.
+    private Job evictBelow(Priority priority) {
+        for (int p = queues.size() - 1; p > priority.ordinal(); p--) {
+            if (queuedByPriority[p] == 0) {
+                continue;
+            }
+            Map<String, ArrayDeque<Job>> byOwner = queues.get(p);
+            String owner = null;
+            for (String key : byOwner.keySet()) {
+                owner = key;
+            }
+            Job victim = byOwner.get(owner).pollLast();
+            if (byOwner.get(owner).isEmpty()) {
+                byOwner.remove(owner);
+            }
+            queuedByPriority[p]--;
+            queued--;
+            rejected++;
+            return victim;
+        }
+        return null;
+    }
+
+    // Interrupts a running search of a class below job's when job would otherwise wait for a worker, taking
+    // the least urgent class first. Only queued jobs of classes above the victim's count as waiting.
+    private Job preemptFor(Job job) {
+        int free = workers.size() - busyWorkers;
+        for (int victim = queues.size() - 1; victim > job.priority.ordinal(); victim--) {
+            int waiting = 0;
+            for (int p = 0; p < victim; p++) {
+                waiting += queuedByPriority[p];
+            }
+            if (waiting <= free) {
+                continue;
+            }
+            for (Job running : active) {
+                if (running.priority.ordinal() == victim && !running.stopped) {
+                    running.stopped = true;
+                    running.runner.interrupt();
+                    preempted++;
+                    return running;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Takes the first job of the next owner in the most urgent non-empty class; an owner with more jobs goes
+    // to the back of its class.
+    private Job next() {
+        for (int p = 0; p < queues.size(); p++) {
+            Iterator<Map.Entry<String, ArrayDeque<Job>>> owners = queues.get(p).entrySet().iterator();
+            if (!owners.hasNext()) {
+                continue;
+            }
+            Map.Entry<String, ArrayDeque<Job>> first = owners.next();
+            owners.remove();
+            Job job = first.getValue().poll();
+            if (!first.getValue().isEmpty()) {
+                queues.get(p).put(first.getKey(), first.getValue());
+            }
+            queuedByPriority[p]--;
+            queued--;
+            return job;
+        }
+        return null;
+    }
+
+    // False when the job was not queued.
+    private boolean unlink(Job job) {
+        Map<String, ArrayDeque<Job>> byOwner = queues.get(job.priority.ordinal());
+        ArrayDeque<Job> jobs = byOwner.get(job.owner);
+        if (jobs == null || !jobs.remove(job)) {
+            return false;
+        }
+        if (jobs.isEmpty()) {
+            byOwner.remove(job.owner);
+        }
+        queuedByPriority[job.priority.ordinal()]--;
+        queued--;
+        return true;
+    }
+
+    private void work() {
+        while (true) {
+            Job job = null;
+            lock.lock();
+            try {
+                while (!closed && (job = next()) == null) {
+                    available.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                admit(job);
+            } finally {
+                lock.unlock();
+            }
+            run(job);
+        }
+    }
+
+    // Adjusts a job's limits to the load it starts under and records its wait. Called with the lock held.
+    private void admit(Job job) {
+        long waited = System.nanoTime() - job.queuedAt;
+        started++;
+        waitNanos += waited;
+        maxWaitNanos = Math.max(maxWaitNanos, waited);
+
+        SearchLimits limits = job.limits;
+        if (limits.isTimed()) {
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(waited);
+            limits = limits.withTime(Math.max(limits.getSoftMillis() - waitedMillis, 1),
+                    Math.max(limits.getHardMillis() - waitedMillis, 1));
+        }
+        if (queued > 0) {
+            limits = shorten(limits, depthCap(queued));
+        }
+        if (limits.getDepth() < job.limits.getDepth()) {
+            degraded++;
+        }
+        job.limits = limits;
+        job.clock = new SearchClock(limits);
+        job.runner = Thread.currentThread();
+        active.add(job);
+        running++;
+        busyWorkers++;
+    }
+
+    // Full depth until a quarter of the queue is used, then falling linearly from LOADED_DEPTH to MIN_DEPTH.
+    int depthCap(int backlog) {
+        int free = capacity - capacity / 4;
+        if (backlog <= capacity / 4) {
+            return SearchLimits.MAX_DEPTH;
+        }
+        int spare = Math.max(capacity - backlog, 0);
+        return MIN_DEPTH + (LOADED_DEPTH - MIN_DEPTH) * spare / Math.max(free, 1);
+    }
+
+    // Live jobs the queue takes beyond its capacity, each searched to MIN_DEPTH only.
+    private int liveHeadroom() {
+        return Math.max(1, capacity / 4);
+    }
+
+    private static SearchLimits shorten(SearchLimits limits, int depth) {
+        return limits.withDepth(Math.min(limits.getDepth(), depth)).withThreads(1);
+    }
+
+    private void run(Job job) {
+        SearchResult result = null;
+        RuntimeException failure = null;
+        boolean stopped;
+        try {
+            if (!job.future.isDone()) {
+                result = engine.search(job.position, job.limits, job.clock);
+            }
+        } catch (RuntimeException ex) {
+            failure = ex;
+        }
+        if (result != null) {
+            job.nodes = result.getNodes();
+            job.cpuNanos = result.getCpuNanos();
+        }
+        lock.lock();
+        try {
+            stopped = job.stopped;
+            job.runner = null;
+            active.remove(job);
+            completed++;
+            running--;
+            busyWorkers--;
+        } finally {
+            lock.unlock();
+        }
+        // With the runner cleared no cancellation can reach this thread any more; one that arrived as the
+        // search finished is dropped so it affects neither the callbacks nor the worker's next job.
+        Thread.interrupted();
+        if (stopped) {
+            job.future.cancel(false); // the result of an interrupted search is not the one asked for
+        } else if (failure != null) {
+            job.future.completeExceptionally(failure);
+        } else if (result != null) {
+            job.future.complete(result);
+        }
+        job.finished.complete(job);
+    }
+
+    // One queued or running search. Cancelling a queued job removes it; cancelling a running one interrupts
+    // its search. Either way the future is cancelled and its callbacks run, unless the search completed first;
+    // an interrupted search never completes it with a partial result.
+    //
+    // The future may complete while a cancelled search is still winding down. The work a job did is known
+    // once getFinished completes, which happens exactly once for every job, however it ended: after its search
+    // stopped, or when it was dropped without running.
+    public final class Job {
+        private final String owner;
+        private volatile Priority priority;
+        private final ChessBoard position;
+        private final CompletableFuture<SearchResult> future = new CompletableFuture<>();
+        private final CompletableFuture<Job> finished = new CompletableFuture<>();
+        private volatile SearchLimits limits;
+        private volatile SearchClock clock;
+        private volatile Thread runner;
+        private boolean stopped;
+        private long queuedAt;
+        // Set before finished completes, which publishes them.
+        private long nodes;
+        private long cpuNanos;
+
+        private Job(String owner, Priority priority, ChessBoard position, SearchLimits limits) {
+            this.owner = owner;
+            this.priority = priority;
+            this.position = position;
+            this.limits = limits;
+        }
+
+        public String getOwner() { return owner; }
+        public Priority getPriority() { return priority; }
+
+        // The limits the search runs with, once admitted; may be shorter than requested under load.
+        public SearchLimits getLimits() { return limits; }
+
+        public CompletableFuture<SearchResult> getFuture() {
+            return future;
+        }
+
+        public CompletableFuture<Job> getFinished() {
+            return finished;
+        }
+
+        // Nodes searched, counted whether or not the result was wanted; read once getFinished has completed.
+        public long getNodes() { return nodes; }
+
+        // CPU time of the search, or -1 where it cannot be measured; read once getFinished has completed.
+        public long getCpuNanos() { return cpuNanos; }
+
+        public void cancel() {
+            if (future.isDone()) {
+                return;
+            }
+            boolean unqueued = false;
+            lock.lock();
+            try {
+                if (runner == null) {
+                    unqueued = unlink(this);
+                } else {
+                    stopped = true;
+                    runner.interrupt();
+                }
+            } finally {
+                lock.unlock();
+            }
+            future.cancel(false);
+            if (unqueued) {
+                finished.complete(this);
+            }
+        }
+    }
+
+    // Counters since start and the current queue, for monitoring.
+    public static final class Stats {
+        private final int queueDepth;
+        private final int queueCapacity;
+        private final Map<Priority, Integer> queued = new LinkedHashMap<>();
+        private final int running;
+        private final int workers;
+        private final long submitted;
+        private final long completed;
+        private final long degraded;
+        private final long rejected;
+        private final long overflow;
+        private final long preempted;
+        private final long promoted;
+        private final double averageWaitMillis;
+        private final double maxWaitMillis;
+
+        private Stats(EngineScheduler scheduler) {
+            this.queueDepth = scheduler.queued;
+            this.queueCapacity = scheduler.capacity;
+            for (Priority priority : Priority.values()) {
+                queued.put(priority, scheduler.queuedByPriority[priority.ordinal()]);
+            }
+            this.running = scheduler.running;
+            this.workers = scheduler.workers.size();
+            this.submitted = scheduler.submitted;
+            this.completed = scheduler.completed;
+            this.degraded = scheduler.degraded;
+            this.rejected = scheduler.rejected;
+            this.overflow = scheduler.overflow;
+            this.preempted = scheduler.preempted;
+            this.promoted = scheduler.promoted;
+            this.averageWaitMillis = scheduler.started == 0 ? 0 : scheduler.waitNanos / 1e6 / scheduler.started;
+            this.maxWaitMillis = scheduler.maxWaitNanos / 1e6;
+        }
+
+        public int getQueueDepth() { return queueDepth; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public Map<Priority, Integer> getQueued() { return queued; }
+        public int getRunning() { return running; }
+        public int getWorkers() { return workers; }
+        public long getSubmitted() { return submitted; }
+        public long getCompleted() { return completed; }
+        // Searches started with a lower depth than requested because of the backlog.
+        public long getDegraded() { return degraded; }
+        public long getRejected() { return rejected; }
+        // Live searches queued beyond the capacity, at MIN_DEPTH, because the queue was full.
+        public long getOverflow() { return overflow; }
+        // Ponder and background searches stopped to free a worker for more urgent work.
+        public long getPreempted() { return preempted; }
+        // Queued or running searches raised to live priority.
+        public long getPromoted() { return promoted; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+        public double getMaxWaitMillis() { return maxWaitMillis; }
+    }
+}
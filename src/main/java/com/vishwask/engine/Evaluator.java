@@ -0,0 +1,24 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.PieceSquareTables;
+
+// Static evaluation in centipawns: material plus piece-square bonuses, blended between middlegame and
+// endgame values by how much material is left. The board keeps the sums up to date as moves are made and
+// unmade (see PieceSquareTables), so evaluating a position costs the same however many pieces are on it.
+public final class Evaluator {
+
+    // Indexed by PieceType ordinal: PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING. Used for move ordering and
+    // pruning margins, where a single value per piece is enough.
+    static final int[] PIECE_VALUES = {100, 500, 320, 330, 900, 0};
+
+    private Evaluator() {
+    }
+
+    // Score from the side to move's point of view.
+    public static int evaluate(ChessBoard board) {
+        int score = PieceSquareTables.taper(board.getMidgameScore(), board.getEndgameScore(), board.getPhase());
+        return board.getSideToMove() == Color.WHITE ? score : -score;
+    }
+}
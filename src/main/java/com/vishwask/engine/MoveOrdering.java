@@ -0,0 +1,164 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.MoveList;
+import com.vishwask.chess.Piece;
+import com.vishwask.chess.PieceType;
+
+import java.util.Arrays;
+
+// Move ordering for one search thread. Moves are scored in bands so the picker yields them in stages:
+// the hash move, captures and queen promotions by MVV-LVA, the two killers of the ply, the countermove to
+// the opponent's last move, then the remaining quiet moves by history score. Under-promotions come last.
+//
+// All tables are allocated once per search thread and cleared at the start of each search, so ordering
+// itself never allocates. They are per thread on purpose: Lazy SMP helpers keep their own statistics.
+final class MoveOrdering {
+
+    private static final int HASH_SCORE = 1 << 30;
+    private static final int CAPTURE_BASE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 27;
+    private static final int COUNTER_SCORE = (1 << 27) - 1;
+    private static final int UNDER_PROMOTION_SCORE = -(1 << 28);
+    // History scores stay within +-HISTORY_MAX, well inside the quiet band.
+    private static final int HISTORY_MAX = 1 << 14;
+
+    // MVV-LVA ranks indexed by PieceType ordinal: PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING.
+    private static final int[] RANK = {1, 4, 2, 3, 5, 6};
+    private static final int QUEEN_RANK = RANK[PieceType.QUEEN.ordinal()];
+
+    private final int[][] scores = new int[Engine.MAX_PLY + 1][256];
+    private final int[][] killers = new int[Engine.MAX_PLY + 1][2];
+    // [color][from][to]
+    private final int[][][] history = new int[2][64][64];
+    // Indexed by the previous move's from * 64 + to.
+    private final int[] counterMoves = new int[64 * 64];
+
+    // Forgets the killers, countermoves and history of the previous search.
+    void clear() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[][] colorHistory : history) {
+            for (int[] row : colorHistory) {
+                Arrays.fill(row, 0);
+            }
+        }
+        Arrays.fill(counterMoves, Move.NONE);
+    }
+
+    // Scores the moves at this ply; hashMove is compact, previousMove the packed move that led here or NONE.
+    void score(ChessBoard board, MoveList moves, int count, int ply, int hashMove, int previousMove) {
+        int[] plyScores = scores[ply];
+        int killer0 = killers[ply][0];
+        int killer1 = killers[ply][1];
+        int counter = previousMove != Move.NONE ? counterMoves[counterIndex(previousMove)] : Move.NONE;
+        int[][] colorHistory = history[board.getSideToMove().ordinal()];
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            int score;
+            if (hashMove != Move.NONE && Move.compact(move) == hashMove) {
+                score = HASH_SCORE;
+            } else if (Move.isPromotion(move) && Move.promotion(move) != PieceType.QUEEN) {
+                score = UNDER_PROMOTION_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                score = CAPTURE_BASE + captureRank(board, move) * 8 - attackerRank(board, move);
+            } else if (move == killer0) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killer1) {
+                score = KILLER_SCORE;
+            } else if (move == counter) {
+                score = COUNTER_SCORE;
+            } else {
+                score = colorHistory[Move.from(move)][Move.to(move)];
+            }
+            plyScores[i] = score;
+        }
+    }
+
+    // Swaps the best-scored of the moves from index onwards into index and returns it.
+    int next(MoveList moves, int index, int count, int ply) {
+        int[] plyScores = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (plyScores[i] > plyScores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = plyScores[best];
+            plyScores[best] = plyScores[index];
+            plyScores[index] = score;
+        }
+        return move;
+    }
+
+    // Called when moves.get(cutoffIndex) failed high. A quiet move becomes a killer and countermove and
+    // gains history; the quiet moves tried before it lose some.
+    void recordCutoff(ChessBoard board, MoveList moves, int cutoffIndex, int depth, int ply, int previousMove) {
+        int move = moves.get(cutoffIndex);
+        if (!isQuiet(move)) {
+            return;
+        }
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if (previousMove != Move.NONE) {
+            counterMoves[counterIndex(previousMove)] = move;
+        }
+        int[][] colorHistory = history[board.getSideToMove().ordinal()];
+        int bonus = Math.min(depth * depth, HISTORY_MAX);
+        updateHistory(colorHistory, move, bonus);
+        for (int i = 0; i < cutoffIndex; i++) {
+            int tried = moves.get(i);
+            if (isQuiet(tried)) {
+                updateHistory(colorHistory, tried, -bonus);
+            }
+        }
+    }
+
+    // Scores a root move list once, before the first iteration.
+    void sortRoot(ChessBoard board, MoveList moves, int count) {
+        score(board, moves, count, 0, Move.NONE, Move.NONE);
+        for (int i = 0; i < count; i++) {
+            next(moves, i, count, 0);
+        }
+    }
+
+    private static boolean isQuiet(int move) {
+        return !Move.isCapture(move) && !Move.isPromotion(move);
+    }
+
+    // Moves the value towards +-HISTORY_MAX by a share that shrinks as it gets close, so it never overflows
+    // the band and old statistics fade.
+    private static void updateHistory(int[][] colorHistory, int move, int bonus) {
+        int[] row = colorHistory[Move.from(move)];
+        int to = Move.to(move);
+        row[to] += bonus - row[to] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    private static int captureRank(ChessBoard board, int move) {
+        int rank = 0;
+        if (Move.isEnPassant(move)) {
+            rank = RANK[PieceType.PAWN.ordinal()];
+        } else if (Move.isCapture(move)) {
+            Piece victim = board.getPieceAt(Move.to(move));
+            rank = victim != null ? RANK[victim.getType().ordinal()] : 0;
+        }
+        return Move.isPromotion(move) ? rank + QUEEN_RANK : rank;
+    }
+
+    private static int attackerRank(ChessBoard board, int move) {
+        Piece attacker = board.getPieceAt(Move.from(move));
+        return attacker != null ? RANK[attacker.getType().ordinal()] : 0;
+    }
+
+    private static int counterIndex(int move) {
+        return Move.from(move) * 64 + Move.to(move);
+    }
+}
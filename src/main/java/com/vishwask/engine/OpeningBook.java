@@ -0,0 +1,228 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.MoveList;
+import com.vishwask.chess.PieceType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Opening book in the Polyglot .bin layout: 16-byte big-endian entries of key, move, weight and learn data,
+// sorted by key. The file is memory-mapped and binary-searched, so a probe touches a few pages and no heap,
+// and any number of games can share one book. Reads use absolute offsets, which makes probing thread-safe.
+//
+// Keys are Polyglot's (see PolyglotKeys), so third-party Polyglot books can be opened as well as books built
+// with write() (or main, for the bundled one). Moves use the Polyglot encoding, castling included as
+// king-takes-rook.
+public final class OpeningBook {
+
+    static final int ENTRY_BYTES = 16;
+
+    private static final PieceType[] PROMOTIONS = {null, PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN};
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    public static OpeningBook empty() {
+        return new OpeningBook(ByteBuffer.allocate(0));
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length / ENTRY_BYTES > Integer.MAX_VALUE) {
+                throw new IOException("Not a book file: " + file + " is " + length + " bytes");
+            }
+            // The mapping stays valid after the channel is closed.
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    // For books packed inside a jar, which cannot be mapped in place: copies them to a temporary file first.
+    public static OpeningBook open(InputStream in) throws IOException {
+        Path copy = Files.createTempFile("opening-book", ".bin");
+        try {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            return open(copy);
+        } finally {
+            copy.toFile().deleteOnExit();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // A legal book move for the side to move, chosen at random in proportion to the entry weights, or
+    // Move.NONE when the position is not in the book.
+    public int probe(ChessBoard board, Random random) {
+        long key = PolyglotKeys.key(board);
+        int first = lowerBound(key);
+        if (first == size || keyAt(first) != key) {
+            return Move.NONE;
+        }
+        try (MoveList legal = MoveList.acquire()) {
+            board.generateLegalMoves(board.getSideToMove(), legal);
+            int total = 0;
+            for (int i = first; i < size && keyAt(i) == key; i++) {
+                total += legalWeight(legal, i);
+            }
+            if (total == 0) {
+                return Move.NONE;
+            }
+            int pick = random.nextInt(total);
+            for (int i = first; ; i++) {
+                pick -= legalWeight(legal, i);
+                if (pick < 0) {
+                    return findLegal(legal, entries.getShort(i * ENTRY_BYTES + 8) & 0xFFFF);
+                }
+            }
+        }
+    }
+
+    // Builds a book from opening lines in coordinate notation, one line per string, moves separated by
+    // spaces; text after '#' is ignored. A move's weight is the number of lines that play it from that
+    // position, so transpositions add up.
+    public static void write(Iterable<String> lines, OutputStream out) throws IOException {
+        Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+        for (String line : lines) {
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            ChessBoard board = new ChessBoard();
+            for (String token : text.split("\\s+")) {
+                int move = findLegal(board, Move.parse(token));
+                if (move == Move.NONE) {
+                    throw new IllegalArgumentException("Illegal move " + token + " in line: " + text);
+                }
+                counts.computeIfAbsent(PolyglotKeys.key(board), k -> new HashMap<>())
+                        .merge(toPolyglot(move), 1, Integer::sum);
+                board.makeMove(move);
+            }
+        }
+
+        List<long[]> sorted = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, Integer>> position : counts.entrySet()) {
+            for (Map.Entry<Integer, Integer> move : position.getValue().entrySet()) {
+                sorted.add(new long[]{position.getKey(), move.getKey(), Math.min(move.getValue(), 0xFFFF)});
+            }
+        }
+        // Polyglot orders keys as unsigned numbers; within a position the most played move comes first.
+        sorted.sort((a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(b[2], a[2]));
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        for (long[] entry : sorted) {
+            data.writeLong(entry[0]);
+            data.writeShort((int) entry[1]);
+            data.writeShort((int) entry[2]);
+            data.writeInt(0);
+        }
+        data.flush();
+    }
+
+    // Regenerates the bundled book: OpeningBook src/main/resources/book/openings.txt src/main/resources/book/openings.bin
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: OpeningBook <lines.txt> <book.bin>");
+            System.exit(2);
+        }
+        List<String> lines = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+        try (OutputStream out = Files.newOutputStream(Paths.get(args[1]))) {
+            write(lines, out);
+        }
+    }
+
+    // Entries whose move is not legal here, e.g. after a key collision, count as weight 0.
+    private int legalWeight(MoveList legal, int index) {
+        int weight = entries.getShort(index * ENTRY_BYTES + 10) & 0xFFFF;
+        return weight > 0 && findLegal(legal, entries.getShort(index * ENTRY_BYTES + 8) & 0xFFFF) != Move.NONE ? weight : 0;
+    }
+
+    private long keyAt(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    // First entry whose key is not below key, or size if there is none.
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int findLegal(ChessBoard board, int compact) {
+        if (compact == Move.NONE) {
+            return Move.NONE;
+        }
+        try (MoveList legal = MoveList.acquire()) {
+            board.generateLegalMoves(board.getSideToMove(), legal);
+            for (int i = 0; i < legal.size(); i++) {
+                if (Move.compact(legal.get(i)) == compact) {
+                    return legal.get(i);
+                }
+            }
+            return Move.NONE;
+        }
+    }
+
+    private static int findLegal(MoveList legal, int polyglot) {
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (toPolyglot(move) == polyglot) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    // Polyglot squares count files and ranks from a1; castling moves the king onto its own rook.
+    private static int toPolyglot(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.isCastle(move)) {
+            to = (to & ~7) | ((to & 7) == 6 ? 7 : 0);
+        }
+        PieceType promotion = Move.promotion(move);
+        int piece = 0;
+        for (int i = 1; i < PROMOTIONS.length; i++) {
+            if (PROMOTIONS[i] == promotion) {
+                piece = i;
+            }
+        }
+        return polyglotSquare(to) | polyglotSquare(from) << 6 | piece << 12;
+    }
+
+    private static int polyglotSquare(int sq) {
+        return (sq & 7) | (7 - (sq >>> 3)) << 3;
+    }
+}
@@ -0,0 +1,34 @@
+package com.vishwask.engine;
+
+// The time budget of one search as absolute deadlines, which may be moved while the search runs: a search
+// started without a clock, such as a ponder search, is put on the clock once its result is wanted for a move.
+// Read by the searching threads at their regular time checks.
+public final class SearchClock {
+
+    private volatile long softDeadline;
+    private volatile long hardDeadline;
+
+    public SearchClock(SearchLimits limits) {
+        setBudget(limits);
+    }
+
+    // Restarts the clock with the budgets of limits, counted from now; untimed limits remove the deadlines.
+    public void setBudget(SearchLimits limits) {
+        long now = System.nanoTime();
+        hardDeadline = deadline(now, limits.getHardMillis());
+        softDeadline = deadline(now, limits.getSoftMillis());
+    }
+
+    long getSoftDeadline() {
+        return softDeadline;
+    }
+
+    long getHardDeadline() {
+        return hardDeadline;
+    }
+
+    // Absolute System.nanoTime() deadline; unlimited budgets land far enough ahead never to be reached.
+    private static long deadline(long now, long millis) {
+        return millis == Long.MAX_VALUE ? now + Long.MAX_VALUE / 2 : now + millis * 1_000_000L;
+    }
+}
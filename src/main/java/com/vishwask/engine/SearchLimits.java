@@ -0,0 +1,101 @@
+package com.vishwask.engine;
+
+// How far a search may go. Instances are immutable; the with* methods return adjusted copies.
+//
+// Time is given as two budgets measured from the start of the search: no new iteration is started once the
+// soft budget is spent, and a running iteration is abandoned at the hard budget. Either way the result is the
+// best move of the last completed depth.
+public final class SearchLimits {
+
+    public static final int MAX_DEPTH = 64;
+
+    // Clock management: plan for this many more moves, never spend more than a fraction of what is left on
+    // one move, and keep a reserve for the round trip that is not measured by the search.
+    private static final int MOVES_TO_GO = 30;
+    private static final int HARD_FRACTION = 8;
+    private static final long RESERVE_MILLIS = 500;
+
+    private final int depth;
+    private final long nodes;
+    private final long softMillis;
+    private final long hardMillis;
+    private final int threads;
+    private final int evalNoise;
+    private final int lines;
+
+    private SearchLimits(int depth, long nodes, long softMillis, long hardMillis, int threads) {
+        this(depth, nodes, softMillis, hardMillis, threads, 0, 1);
+    }
+
+    private SearchLimits(int depth, long nodes, long softMillis, long hardMillis, int threads, int evalNoise, int lines) {
+        this.depth = Math.max(1, Math.min(depth, MAX_DEPTH));
+        this.nodes = nodes > 0 ? nodes : Long.MAX_VALUE;
+        this.hardMillis = hardMillis > 0 ? hardMillis : Long.MAX_VALUE;
+        this.softMillis = softMillis > 0 ? Math.min(softMillis, this.hardMillis) : this.hardMillis;
+        this.threads = Math.max(1, threads);
+        this.evalNoise = Math.max(0, evalNoise);
+        this.lines = Math.max(1, lines);
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, 0, 0, 1);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes, 0, 0, 1);
+    }
+
+    public static SearchLimits time(long softMillis, long hardMillis) {
+        return new SearchLimits(MAX_DEPTH, Long.MAX_VALUE, softMillis, hardMillis, 1);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, softMillis, hardMillis, threads, evalNoise, lines);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, nodes, softMillis, hardMillis, threads, evalNoise, lines);
+    }
+
+    public SearchLimits withTime(long softMillis, long hardMillis) {
+        return new SearchLimits(depth, nodes, softMillis, hardMillis, threads, evalNoise, lines);
+    }
+
+    // Threads searching the position together, the caller's included. Helpers beyond the engine's global
+    // limit are not started, so this is an upper bound.
+    public SearchLimits withThreads(int threads) {
+        return new SearchLimits(depth, nodes, softMillis, hardMillis, threads, evalNoise, lines);
+    }
+
+    // Adds up to this many centipawns, either way, to every static evaluation, so a weakened engine misjudges
+    // positions the way a weaker player would. Noisy searches use a small transposition table of their own.
+    public SearchLimits withEvalNoise(int centipawns) {
+        return new SearchLimits(depth, nodes, softMillis, hardMillis, threads, centipawns, lines);
+    }
+
+    // Principal variations to report, each headed by a different root move (multi-PV). Every line is searched
+    // to the same depth and node limits; a time budget is shared between them.
+    public SearchLimits withLines(int lines) {
+        return new SearchLimits(depth, nodes, softMillis, hardMillis, threads, evalNoise, lines);
+    }
+
+    // Budgets a move from the mover's remaining clock, never exceeding maxMoveMillis for the hard deadline.
+    public SearchLimits withClock(long remainingMillis, long maxMoveMillis) {
+        long usable = Math.max(remainingMillis - Math.min(RESERVE_MILLIS, remainingMillis / 10), 1);
+        long hard = Math.max(Math.min(usable / HARD_FRACTION, maxMoveMillis), 1);
+        long soft = Math.max(Math.min(usable / MOVES_TO_GO, hard / 2), 1);
+        return withTime(soft, hard);
+    }
+
+    public int getDepth() { return depth; }
+    public long getNodes() { return nodes; }
+    public long getSoftMillis() { return softMillis; }
+    public long getHardMillis() { return hardMillis; }
+    public int getThreads() { return threads; }
+    public int getEvalNoise() { return evalNoise; }
+    public int getLines() { return lines; }
+
+    public boolean isTimed() {
+        return hardMillis != Long.MAX_VALUE;
+    }
+}
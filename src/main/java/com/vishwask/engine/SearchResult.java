@@ -0,0 +1,117 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.Move;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int[] principalVariation;
+    private final int threads;
+    private final long cpuNanos;
+    // Multi-PV lines, best first; null for a single-line search, which is its own only line.
+    private final List<SearchResult> lines;
+
+    SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos, int[] principalVariation, int threads) {
+        this(bestMove, score, depth, nodes, elapsedNanos, principalVariation, threads, 0, null);
+    }
+
+    private SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos, int[] principalVariation,
+                         int threads, long cpuNanos, List<SearchResult> lines) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+        this.threads = threads;
+        this.cpuNanos = cpuNanos;
+        this.lines = lines;
+    }
+
+    // The best line's move, score and variation, with the work of every line added up.
+    static SearchResult ofLines(List<SearchResult> lines) {
+        SearchResult best = lines.get(0);
+        long nodes = 0;
+        long elapsedNanos = 0;
+        long cpuNanos = 0;
+        for (SearchResult line : lines) {
+            nodes += line.nodes;
+            elapsedNanos += line.elapsedNanos;
+            cpuNanos = addCpuNanos(cpuNanos, line.cpuNanos);
+        }
+        return new SearchResult(best.bestMove, best.score, best.depth, nodes, elapsedNanos, best.principalVariation,
+                best.threads, cpuNanos, Collections.unmodifiableList(new ArrayList<>(lines)));
+    }
+
+    // The same result with the work of helper threads added to the node count.
+    SearchResult withHelpers(long helperNodes, int helperThreads) {
+        return new SearchResult(bestMove, score, depth, nodes + helperNodes, elapsedNanos, principalVariation,
+                threads + helperThreads, cpuNanos, lines);
+    }
+
+    // Sum of two CPU times, either of which may be -1 for unmeasured.
+    static long addCpuNanos(long a, long b) {
+        return a < 0 || b < 0 ? -1 : a + b;
+    }
+
+    SearchResult withCpuNanos(long cpuNanos) {
+        return new SearchResult(bestMove, score, depth, nodes, elapsedNanos, principalVariation, threads, cpuNanos, lines);
+    }
+
+    // Packed move as produced by ChessBoard.generateLegalMoves, or Move.NONE when there is no legal move.
+    public int getBestMove() { return bestMove; }
+    public int getScore() { return score; }
+    public int getDepth() { return depth; }
+    // Nodes searched by all threads together.
+    public long getNodes() { return nodes; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000L; }
+    public int getThreads() { return threads; }
+    // CPU time spent by all threads together, or -1 where the JVM cannot measure thread CPU time.
+    public long getCpuNanos() { return cpuNanos; }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos > 0 ? nodes * 1_000_000_000L / elapsedNanos : nodes;
+    }
+
+    public boolean hasMove() {
+        return bestMove != Move.NONE;
+    }
+
+    public boolean isMateScore() {
+        return Math.abs(score) >= Engine.MATE_SCORE - Engine.MAX_PLY;
+    }
+
+    // Moves to mate, positive when the side to move delivers it; 0 when the score is not a mate score.
+    public int getMateIn() {
+        if (!isMateScore()) {
+            return 0;
+        }
+        int plies = Engine.MATE_SCORE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    // Every line searched, best first; the result itself when only one was asked for.
+    public List<SearchResult> getLines() {
+        return lines != null ? lines : Collections.singletonList(this);
+    }
+
+    public int[] getPrincipalVariationMoves() {
+        return principalVariation.clone();
+    }
+
+    // Coordinate notation, e.g. ["e2e4", "e7e5"].
+    public List<String> getPrincipalVariation() {
+        List<String> moves = new ArrayList<>(principalVariation.length);
+        for (int move : principalVariation) {
+            moves.add(Move.toString(move));
+        }
+        return Collections.unmodifiableList(moves);
+    }
+}
@@ -0,0 +1,660 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.MoveList;
+import com.vishwask.chess.Piece;
+import com.vishwask.chess.PieceType;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// State for one search thread: the working board, move lists and principal variation table per ply.
+//
+// Several searchers may work on the same position at once (Lazy SMP). They share nothing but the
+// transposition table, the abort flag and the node count; helpers differ from the main searcher only in starting one
+// iteration deeper on odd indexes, which is enough for them to fill the table ahead of it.
+//
+// The board, move lists and tables come from a workspace kept per thread and reused by every search the
+// thread runs, so a search of a few hundred nodes does not pay for allocating them.
+final class Searcher {
+
+    // The clock and the abort flag are read once per this many nodes; must be a power of two.
+    private static final int TIME_CHECK_INTERVAL = 2048;
+    // Nodes are added to the count shared with the other threads of the search this many at a time, so the
+    // node limit holds for all of them together and is overshot by less than this per helper.
+    private static final int NODE_BATCH = 256;
+    // Quiescence skips a capture when even winning the piece outright, plus this margin for positional
+    // swings, would not bring the score up to alpha.
+    private static final int DELTA_MARGIN = 200;
+    // Null-move pruning needs this much depth; below it the reduced search would be quiescence anyway.
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    // From this depth a null-move cut-off is confirmed by a reduced search without the null move, which
+    // catches the zugzwang positions the material guard lets through.
+    private static final int NULL_MOVE_VERIFY_DEPTH = 10;
+    // Futility margins by remaining depth: quiet moves are skipped when the static evaluation plus the margin
+    // is still no better than alpha.
+    private static final int[] FUTILITY_MARGINS = {0, 150, 300, 450};
+    // Late move reductions start with this move index, counted from zero, and at this depth.
+    private static final int LMR_MIN_MOVE = 3;
+    private static final int LMR_MIN_DEPTH = 3;
+    // The first aspiration window around the previous iteration's score, widened on each failure.
+    private static final int ASPIRATION_WINDOW = 25;
+    private static final int ASPIRATION_MIN_DEPTH = 5;
+    // Score of a position a bitbase says is won, well above any evaluation and below mate scores. The
+    // evaluation and the distance between the kings are added to prefer the easier of two conversions; the
+    // mate itself is found by searching once the root is a table position (see keepTableResult).
+    private static final int BITBASE_WIN = 20000;
+
+    // Plies to reduce a late quiet move by, indexed by [depth][move index]; grows with the logarithm of both.
+    private static final int[][] LMR_REDUCTIONS = new int[64][64];
+
+    static {
+        for (int depth = 1; depth < 64; depth++) {
+            for (int move = 1; move < 64; move++) {
+                LMR_REDUCTIONS[depth][move] = (int) (0.75 + Math.log(depth) * Math.log(move) / 2.25);
+            }
+        }
+    }
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private final ChessBoard position;
+    private final SearchLimits limits;
+    private final TranspositionTable table;
+    private final EngineOptions options;
+    private final Bitbases bitbases;
+    private final AtomicBoolean abort;
+    private final AtomicLong searchNodes;
+    private final SearchClock clock;
+    private final int helperIndex;
+    // Evaluation noise (see SearchLimits.withEvalNoise), fixed per position for the whole search; noisy
+    // searches are given a table of their own.
+    private final int evalNoise;
+    private final long noiseSeed;
+
+    // Taken from the running thread's workspace when the search starts.
+    private ChessBoard board;
+    private MoveList[] moveLists;
+    private int[][] pvTable;
+    private int[] pvLength;
+    private int[] playedMoves;
+    private MoveOrdering ordering;
+    private StaticExchange exchange;
+
+    private long nodes;
+    private long batchStart;
+    // The shared count as of this thread's last batch, its own nodes of the batch not included.
+    private long otherNodes;
+    private long cpuNanos;
+    private boolean stopped;
+    private long startNanos;
+
+    // Root moves left out, so a multi-PV search finds the best line headed by any other move.
+    private int[] excludedRootMoves = new int[0];
+    // False when the root itself is a table position; see keepTableResult.
+    private boolean probeTables;
+
+    // Root results of the iteration in progress.
+    private int iterationMove;
+    private int[] iterationLine;
+
+    // helperIndex is 0 for the searcher whose result is reported. position is only read, so the searchers
+    // of one search may share it, as they share abort, searchNodes, the noise seed and the clock, whose
+    // deadlines replace the time budgets of limits.
+    Searcher(ChessBoard position, SearchLimits limits, TranspositionTable table, EngineOptions options,
+             Bitbases bitbases, AtomicBoolean abort, AtomicLong searchNodes, SearchClock clock, long noiseSeed,
+             int helperIndex) {
+        this.position = position;
+        this.limits = limits;
+        this.table = table;
+        this.options = options;
+        this.bitbases = bitbases;
+        this.abort = abort;
+        this.searchNodes = searchNodes;
+        this.clock = clock;
+        this.helperIndex = helperIndex;
+        this.evalNoise = limits.getEvalNoise();
+        this.noiseSeed = noiseSeed;
+    }
+
+    // Iterative deepening: searches depth 1, 2, ... and returns the result of the deepest completed iteration.
+    // Each iteration tries the previous best move first, so an interrupted one never loses what was known.
+    SearchResult search() {
+        Workspace workspace = WORKSPACE.get();
+        board = workspace.board;
+        board.copyPositionFrom(position);
+        moveLists = workspace.moveLists;
+        pvTable = workspace.pvTable;
+        pvLength = workspace.pvLength;
+        playedMoves = workspace.playedMoves;
+        ordering = workspace.ordering;
+        ordering.clear();
+        exchange = workspace.exchange;
+        long cpuStart = threadCpuNanos();
+        try {
+            return iterate();
+        } finally {
+            cpuNanos = cpuStart < 0 ? -1 : threadCpuNanos() - cpuStart;
+        }
+    }
+
+    private SearchResult iterate() {
+        startNanos = System.nanoTime();
+
+        MoveList rootMoves = moveLists[0];
+        int count = board.generateLegalMoves(board.getSideToMove(), rootMoves);
+        if (count == 0) {
+            int score = board.isInCheck(board.getSideToMove()) ? -Engine.MATE_SCORE : 0;
+            return new SearchResult(Move.NONE, score, 0, 0, System.nanoTime() - startNanos, new int[0], 1);
+        }
+        count = removeExcluded(rootMoves, count);
+        if (count == 0) {
+            return new SearchResult(Move.NONE, 0, 0, 0, System.nanoTime() - startNanos, new int[0], 1);
+        }
+        int rootValue = bitbases.getMaxPieces() > 0 && Long.bitCount(board.getOccupied()) <= bitbases.getMaxPieces()
+                ? bitbases.probe(board) : Bitbases.UNKNOWN;
+        probeTables = rootValue == Bitbases.UNKNOWN;
+        if (!probeTables) {
+            count = keepTableResult(rootMoves, count, rootValue);
+        }
+        ordering.sortRoot(board, rootMoves, count);
+
+        int maxDepth = Math.min(limits.getDepth(), Engine.MAX_PLY - 1);
+        int bestMove = rootMoves.get(0);
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] bestLine = {bestMove};
+        for (int depth = 1 + (helperIndex & 1); depth <= maxDepth; depth++) {
+            int score = aspirationSearch(rootMoves, count, depth, bestScore);
+            if (stopped) {
+                break;
+            }
+            bestMove = iterationMove;
+            bestScore = score;
+            bestLine = extendFromTable(iterationLine, depth);
+            completedDepth = depth;
+            if (excludedRootMoves.length == 0) {
+                table.store(board.getZobristKey(), bestMove, bestScore, depth, TranspositionTable.BOUND_EXACT, 0);
+            }
+            moveToFront(rootMoves, count, bestMove);
+            if (count == 1 || Math.abs(bestScore) >= Engine.MATE_SCORE - depth || System.nanoTime() - clock.getSoftDeadline() >= 0) {
+                break; // forced, mate found within the searched horizon, or no time for another iteration
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - startNanos, bestLine, 1);
+    }
+
+    // Searches the root with a narrow window around the previous score, widening it on the side that failed
+    // until the score falls inside. Shallow iterations and mate scores use the full window.
+    private int aspirationSearch(MoveList rootMoves, int count, int depth, int previousScore) {
+        int delta = ASPIRATION_WINDOW;
+        int alpha = -Engine.INFINITY;
+        int beta = Engine.INFINITY;
+        if (options.isAspirationWindows() && depth >= ASPIRATION_MIN_DEPTH
+                && Math.abs(previousScore) < Engine.MATE_SCORE - Engine.MAX_PLY) {
+            alpha = Math.max(previousScore - delta, -Engine.INFINITY);
+            beta = Math.min(previousScore + delta, Engine.INFINITY);
+        }
+        while (true) {
+            int score = searchRoot(rootMoves, count, depth, alpha, beta);
+            if (stopped) {
+                return score;
+            }
+            if (score <= alpha && alpha > -Engine.INFINITY) {
+                delta *= 2;
+                alpha = Math.max(score - delta, -Engine.INFINITY);
+            } else if (score >= beta && beta < Engine.INFINITY) {
+                delta *= 2;
+                beta = Math.min(score + delta, Engine.INFINITY);
+            } else {
+                return score;
+            }
+            if (delta > 1000) {
+                alpha = -Engine.INFINITY;
+                beta = Engine.INFINITY;
+            }
+        }
+    }
+
+    // One pass over the root moves with principal variation search: the first move gets the full window,
+    // the rest a null window that is re-opened only when they look better. Leaves the best move and its line
+    // in iterationMove and iterationLine when the score is inside the window.
+    private int searchRoot(MoveList rootMoves, int count, int depth, int alpha, int beta) {
+        int best = -Engine.INFINITY;
+        for (int i = 0; i < count; i++) {
+            int move = rootMoves.get(i);
+            playedMoves[0] = move;
+            board.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, -beta, -alpha, 1, true);
+            } else {
+                score = -negamax(depth - 1, -alpha - 1, -alpha, 1, true);
+                if (score > alpha && score < beta && !stopped) {
+                    score = -negamax(depth - 1, -beta, -alpha, 1, true);
+                }
+            }
+            board.unmakeMove();
+            if (stopped) {
+                return best;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    iterationMove = move;
+                    iterationLine = new int[pvLength[1]];
+                    iterationLine[0] = move;
+                    System.arraycopy(pvTable[1], 1, iterationLine, 1, pvLength[1] - 1);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply, boolean allowNullMove) {
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        if (isDraw()) {
+            return 0;
+        }
+        if (ply >= Engine.MAX_PLY) {
+            return evaluate();
+        }
+        if (probeTables && Long.bitCount(board.getOccupied()) <= bitbases.getMaxPieces()) {
+            int wdl = bitbases.probe(board);
+            if (wdl != Bitbases.UNKNOWN) {
+                return bitbaseScore(wdl);
+            }
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        long key = board.getZobristKey();
+        long entry = table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry, ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        boolean inCheck = board.isInCheck(board.getSideToMove());
+        int staticEval = inCheck ? -Engine.INFINITY : evaluate();
+
+        // Null move: if passing the turn still fails high on a reduced search, a real move will too. Not done
+        // in check, after another null move, or without pieces, where zugzwang makes passing a fallacy.
+        if (options.isNullMove() && allowNullMove && !pvNode && !inCheck && depth >= NULL_MOVE_MIN_DEPTH
+                && staticEval >= beta && hasPieces()) {
+            int reduction = 2 + depth / 4;
+            playedMoves[ply] = Move.NONE;
+            board.makeNullMove();
+            int score = -negamax(depth - 1 - reduction, -beta, -beta + 1, ply + 1, false);
+            board.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                if (score >= Engine.MATE_SCORE - Engine.MAX_PLY) {
+                    score = beta; // a mate found after passing is not a proven mate
+                }
+                if (depth < NULL_MOVE_VERIFY_DEPTH) {
+                    return score;
+                }
+                int verified = negamax(depth - 1 - reduction, beta - 1, beta, ply, false);
+                if (stopped) {
+                    return 0;
+                }
+                if (verified >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        boolean futile = options.isFutilityPruning() && !pvNode && !inCheck && depth < FUTILITY_MARGINS.length
+                && Math.abs(alpha) < Engine.MATE_SCORE - Engine.MAX_PLY
+                && staticEval + FUTILITY_MARGINS[depth] <= alpha;
+
+        MoveList moves = moveLists[ply];
+        int count = board.generateLegalMoves(board.getSideToMove(), moves);
+        if (count == 0) {
+            return inCheck ? -Engine.MATE_SCORE + ply : 0;
+        }
+        int previousMove = playedMoves[ply - 1];
+        ordering.score(board, moves, count, ply, hashMove, previousMove);
+
+        int originalAlpha = alpha;
+        int best = -Engine.INFINITY;
+        int bestMove = Move.NONE;
+        int searched = 0;
+        for (int i = 0; i < count; i++) {
+            int move = ordering.next(moves, i, count, ply);
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+            playedMoves[ply] = move;
+            board.makeMove(move);
+            boolean givesCheck = board.isInCheck(board.getSideToMove());
+            if (futile && quiet && !givesCheck && searched > 0) {
+                board.unmakeMove();
+                best = Math.max(best, staticEval + FUTILITY_MARGINS[depth]);
+                continue;
+            }
+
+            int score;
+            if (searched == 0) {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+            } else {
+                int reduction = 0;
+                if (options.isLateMoveReductions() && quiet && !inCheck && !givesCheck
+                        && depth >= LMR_MIN_DEPTH && i >= LMR_MIN_MOVE) {
+                    reduction = LMR_REDUCTIONS[Math.min(depth, 63)][Math.min(i, 63)];
+                    if (pvNode) {
+                        reduction--;
+                    }
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+                score = -negamax(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, true);
+                if (score > alpha && reduction > 0 && !stopped) {
+                    score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1, true);
+                }
+                if (score > alpha && score < beta && !stopped) {
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            }
+            board.unmakeMove();
+            searched++;
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        ordering.recordCutoff(board, moves, i, depth, ply, previousMove);
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, best, depth, bound, ply);
+        return best;
+    }
+
+    // Resolves captures and promotions until the position is quiet, so the static evaluation is never taken
+    // in the middle of an exchange. The side to move may stand pat on the evaluation unless it is in check,
+    // in which case every evasion is searched. Captures that cannot raise alpha even with a margin (delta
+    // pruning) or that lose material by static exchange are skipped.
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        if (isDraw()) {
+            return 0;
+        }
+        if (ply >= Engine.MAX_PLY) {
+            return evaluate();
+        }
+
+        boolean inCheck = board.isInCheck(board.getSideToMove());
+        int standPat = -Engine.INFINITY;
+        MoveList moves = moveLists[ply];
+        int count;
+        if (inCheck) {
+            count = board.generateLegalMoves(board.getSideToMove(), moves);
+            if (count == 0) {
+                return -Engine.MATE_SCORE + ply;
+            }
+        } else {
+            standPat = evaluate();
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            count = board.generateLegalCaptures(board.getSideToMove(), moves);
+        }
+        ordering.score(board, moves, count, ply, Move.NONE, Move.NONE);
+
+        int best = standPat;
+        for (int i = 0; i < count; i++) {
+            int move = ordering.next(moves, i, count, ply);
+            if (!inCheck) {
+                if (Move.isPromotion(move)) {
+                    if (Move.promotion(move) != PieceType.QUEEN) {
+                        continue;
+                    }
+                } else if (standPat + capturedValue(move) + DELTA_MARGIN <= alpha
+                        || exchange.evaluate(board, move) < 0) {
+                    continue;
+                }
+            }
+            playedMoves[ply] = move;
+            board.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            board.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // Counts a node and reports whether the search has to stop, because of the node limit, the hard
+    // deadline or the shared abort flag.
+    private boolean countNode() {
+        if (++nodes - batchStart == NODE_BATCH) {
+            otherNodes = searchNodes.addAndGet(NODE_BATCH) - nodes;
+            batchStart = nodes;
+        }
+        if (otherNodes + nodes >= limits.getNodes()
+                || ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && (abort.get() || System.nanoTime() - clock.getHardDeadline() >= 0
+                        || Thread.currentThread().isInterrupted()))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    // Whether the side to move has anything besides pawns and the king.
+    private boolean hasPieces() {
+        Color side = board.getSideToMove();
+        return (board.getPieces(side) & ~board.getPieces(PieceType.PAWN, side)
+                & ~board.getPieces(PieceType.KING, side)) != 0;
+    }
+
+    // Static evaluation plus this search's noise for the position, uniform in [-evalNoise, evalNoise].
+    private int evaluate() {
+        int score = Evaluator.evaluate(board);
+        if (evalNoise == 0) {
+            return score;
+        }
+        long hash = (board.getZobristKey() ^ noiseSeed) * 0x9E3779B97F4A7C15L;
+        return score + (int) ((hash >>> 33) % (2 * evalNoise + 1)) - evalNoise;
+    }
+
+    private int bitbaseScore(int wdl) {
+        if (wdl == Bitbase.DRAW) {
+            return 0;
+        }
+        int whiteKing = Long.numberOfTrailingZeros(board.getPieces(PieceType.KING, Color.WHITE));
+        int blackKing = Long.numberOfTrailingZeros(board.getPieces(PieceType.KING, Color.BLACK));
+        int distance = Math.max(Math.abs((whiteKing >> 3) - (blackKing >> 3)), Math.abs((whiteKing & 7) - (blackKing & 7)));
+        int progress = 4 * (7 - distance);
+        return wdl == Bitbase.WIN ? BITBASE_WIN + Evaluator.evaluate(board) + progress
+                : -BITBASE_WIN + Evaluator.evaluate(board) - progress;
+    }
+
+    private boolean isDraw() {
+        return board.getHalfmoveClock() >= 100 || board.isRepetition();
+    }
+
+    private int capturedValue(int move) {
+        if (Move.isEnPassant(move)) {
+            return Evaluator.PIECE_VALUES[PieceType.PAWN.ordinal()];
+        }
+        Piece victim = board.getPieceAt(Move.to(move));
+        return victim != null ? Evaluator.PIECE_VALUES[victim.getType().ordinal()] : 0;
+    }
+
+    // Cut-offs from the table leave the principal variation short; follow stored best moves to fill it up
+    // to the searched depth, stopping at the first one that is not legal in the position it leads to.
+    private int[] extendFromTable(int[] line, int depth) {
+        if (line.length >= depth) {
+            return line;
+        }
+        int[] extended = Arrays.copyOf(line, depth);
+        int length = 0;
+        for (int move : line) {
+            board.makeMove(move);
+            length++;
+        }
+        while (length < depth && !board.isRepetition()) {
+            long entry = table.probe(board.getZobristKey());
+            int compact = TranspositionTable.move(entry);
+            if (entry == 0 || compact == Move.NONE || board.getPieceAt(Move.from(compact)) == null
+                    || board.getPieceAt(Move.from(compact)).getColor() != board.getSideToMove()) {
+                break;
+            }
+            int move = board.findLegalMove(compact);
+            if (move == Move.NONE) {
+                break;
+            }
+            board.makeMove(move);
+            extended[length++] = move;
+        }
+        for (int i = 0; i < length; i++) {
+            board.unmakeMove();
+        }
+        return length == extended.length ? extended : Arrays.copyOf(extended, length);
+    }
+
+    void excludeRootMoves(int[] moves) {
+        this.excludedRootMoves = moves;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    // CPU time of the thread that ran the last search, or -1 where the JVM cannot measure it.
+    long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    private static long threadCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    // The tables know whether a position is won but not how far the mate is, so probing below a root that is
+    // itself a table position would score every winning line alike and leave the search no way to make
+    // progress. Such a root is played out by the search instead, from the moves that keep the table's result:
+    // one that leaves the opponent lost when the root is won, one that does not leave the opponent winning
+    // when it is drawn. All moves are kept if the table rules out every one.
+    private int keepTableResult(MoveList moves, int count, int rootValue) {
+        if (rootValue == Bitbase.LOSS) {
+            return count;
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            int reply = bitbases.probe(board);
+            board.unmakeMove();
+            if (rootValue == Bitbase.WIN ? reply == Bitbase.LOSS : reply != Bitbase.WIN) {
+                moves.set(i, moves.get(kept));
+                moves.set(kept++, move);
+            }
+        }
+        if (kept == 0) {
+            return count;
+        }
+        moves.truncate(kept);
+        return kept;
+    }
+
+    // Drops the excluded root moves, keeping the others in order, and returns how many are left.
+    private int removeExcluded(MoveList moves, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            boolean excluded = false;
+            for (int skip : excludedRootMoves) {
+                excluded |= skip == move;
+            }
+            if (!excluded) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+        return kept;
+    }
+
+    // Moves the given move to index 0 and shifts the ones before it back, keeping their relative order.
+    private static void moveToFront(MoveList moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves.get(i) == move) {
+                for (int j = i; j > 0; j--) {
+                    moves.set(j, moves.get(j - 1));
+                }
+                moves.set(0, move);
+                return;
+            }
+        }
+    }
+
+    private static final class Workspace {
+        private final ChessBoard board = new ChessBoard();
+        private final MoveList[] moveLists = new MoveList[Engine.MAX_PLY + 1];
+        private final int[][] pvTable = new int[Engine.MAX_PLY + 1][Engine.MAX_PLY + 1];
+        private final int[] pvLength = new int[Engine.MAX_PLY + 1];
+        // The move made at each ply, for countermove lookups one ply deeper.
+        private final int[] playedMoves = new int[Engine.MAX_PLY + 1];
+        private final MoveOrdering ordering = new MoveOrdering();
+        private final StaticExchange exchange = new StaticExchange();
+
+        Workspace() {
+            for (int i = 0; i < moveLists.length; i++) {
+                moveLists[i] = new MoveList();
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.Attacks;
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.Piece;
+import com.vishwask.chess.PieceType;
+
+// Static exchange evaluation: the material balance of a capture once both sides have recaptured on the
+// target square with their least valuable attackers, each free to stop when going on would lose more.
+// Sliders uncovered behind a capturer join in. Pins and checks are ignored, as usual for SEE. Each search
+// thread owns one instance for its scratch buffer.
+final class StaticExchange {
+
+    // Indexed by PieceType ordinal; the king is worth more than anything it could win, so a king recapture
+    // into a defended square never comes out ahead.
+    private static final int[] VALUES = {100, 500, 320, 330, 900, 20000};
+    private static final PieceType[] BY_VALUE = {
+        PieceType.PAWN, PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN, PieceType.KING
+    };
+
+    private final int[] gain = new int[32];
+
+    // Expected material gain in centipawns for the side making the capture; promotions are not counted.
+    int evaluate(ChessBoard board, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece mover = board.getPieceAt(from);
+        if (mover == null) {
+            return 0;
+        }
+        long occupied = board.getOccupied() ^ (1L << from);
+        if (Move.isEnPassant(move)) {
+            int capturedSq = (from & ~7) | (to & 7);
+            occupied ^= 1L << capturedSq;
+            gain[0] = VALUES[PieceType.PAWN.ordinal()];
+        } else {
+            Piece victim = board.getPieceAt(to);
+            gain[0] = victim != null ? VALUES[victim.getType().ordinal()] : 0;
+        }
+
+        long rookLike = board.getPieces(PieceType.ROOK, Color.WHITE) | board.getPieces(PieceType.ROOK, Color.BLACK)
+                | board.getPieces(PieceType.QUEEN, Color.WHITE) | board.getPieces(PieceType.QUEEN, Color.BLACK);
+        long bishopLike = board.getPieces(PieceType.BISHOP, Color.WHITE) | board.getPieces(PieceType.BISHOP, Color.BLACK)
+                | board.getPieces(PieceType.QUEEN, Color.WHITE) | board.getPieces(PieceType.QUEEN, Color.BLACK);
+        long attackers = attackersTo(board, to, occupied, rookLike, bishopLike) & occupied;
+
+        Color side = mover.getColor() == Color.WHITE ? Color.BLACK : Color.WHITE;
+        int onSquare = VALUES[mover.getType().ordinal()];
+        int depth = 0;
+        while (true) {
+            long ownAttackers = attackers & board.getPieces(side);
+            if (ownAttackers == 0) {
+                break;
+            }
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+                break; // neither continuing nor stopping here changes the outcome
+            }
+            PieceType attackerType = leastValuable(board, ownAttackers, side);
+            long attackerBit = Long.lowestOneBit(ownAttackers & board.getPieces(attackerType, side));
+            occupied ^= attackerBit;
+            attackers |= (Attacks.rook(to, occupied) & rookLike) | (Attacks.bishop(to, occupied) & bishopLike);
+            attackers &= occupied;
+            onSquare = VALUES[attackerType.ordinal()];
+            side = side == Color.WHITE ? Color.BLACK : Color.WHITE;
+            if (depth == gain.length - 1) {
+                break;
+            }
+        }
+        while (--depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        }
+        return gain[0];
+    }
+
+    private static long attackersTo(ChessBoard board, int sq, long occupied, long rookLike, long bishopLike) {
+        return (Attacks.pawn(Color.BLACK, sq) & board.getPieces(PieceType.PAWN, Color.WHITE))
+                | (Attacks.pawn(Color.WHITE, sq) & board.getPieces(PieceType.PAWN, Color.BLACK))
+                | (Attacks.knight(sq) & (board.getPieces(PieceType.KNIGHT, Color.WHITE)
+                        | board.getPieces(PieceType.KNIGHT, Color.BLACK)))
+                | (Attacks.king(sq) & (board.getPieces(PieceType.KING, Color.WHITE)
+                        | board.getPieces(PieceType.KING, Color.BLACK)))
+                | (Attacks.rook(sq, occupied) & rookLike)
+                | (Attacks.bishop(sq, occupied) & bishopLike);
+    }
+
+    private static PieceType leastValuable(ChessBoard board, long attackers, Color side) {
+        for (PieceType type : BY_VALUE) {
+            if ((attackers & board.getPieces(type, side)) != 0) {
+                return type;
+            }
+        }
+        throw new IllegalStateException("No attacker among " + Long.toHexString(attackers));
+    }
+}
@@ -0,0 +1,166 @@
+package com.vishwask.engine;
+
+import com.vishwask.chess.Move;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Fixed-size hash table of search results keyed by Zobrist key, shared by every search of an Engine. Searches
+// with evaluation noise get a small one of their own instead (forSearch), so their skewed scores neither
+// reach other searches nor go without the table's move ordering and cut-offs.
+//
+// Entries live in a single long[] as pairs (key ^ data, data) so there is nothing per entry for the garbage
+// collector to trace. Writes take no lock: a reader recomputes key ^ data and ignores the slot unless it
+// matches, which also discards an entry torn by two threads writing the same slot at once. Slots come in
+// buckets of two; a new result replaces the same position if present, otherwise whichever slot is the
+// shallowest once older entries are aged down.
+//
+// Age counts time slices, not searches. Every game, ponder and multi-PV line starts a search on the one table,
+// so aging by search would make entries still in use look stale within milliseconds and wrap the 8-bit age.
+//
+// Data layout:
+//   bits 0-15   best move in compact form, or Move.NONE
+//   bits 16-31  score, signed
+//   bits 32-39  depth
+//   bits 40-41  bound (BOUND_UPPER, BOUND_LOWER or BOUND_EXACT; 0 marks an empty slot)
+//   bits 42-49  age: the time slice it was stored in
+final class TranspositionTable {
+
+    static final int BOUND_UPPER = 1;
+    static final int BOUND_LOWER = 2;
+    static final int BOUND_EXACT = 3;
+
+    // Hard ceiling on one table, whatever is configured; it is also kept to a quarter of the heap.
+    static final int MAX_SIZE_MB = 1024;
+
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+    private static final int AGE_MASK = 0xFF;
+    // Depth given up per time slice of age when choosing which slot to overwrite.
+    private static final int AGE_WEIGHT = 4;
+    private static final long SLICE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Ceiling on a table of one search's own: 512 KB.
+    private static final long SEARCH_MAX_BUCKETS = 1L << 14;
+
+    private final long[] table;
+    private final long bucketMask;
+    private final long startNanos = System.nanoTime();
+    private volatile int age;
+
+    TranspositionTable(int sizeMb) {
+        this(Long.highestOneBit(Math.max(Math.min((long) Math.max(1, Math.min(sizeMb, MAX_SIZE_MB)) << 20,
+                Runtime.getRuntime().maxMemory() / 4) / BYTES_PER_BUCKET, 1)));
+    }
+
+    // buckets must be a power of two.
+    private TranspositionTable(long buckets) {
+        table = new long[(int) (buckets * LONGS_PER_BUCKET)];
+        bucketMask = buckets - 1;
+    }
+
+    // A table for one search of at most this many nodes: a bucket, i.e. two slots, per two nodes, up to
+    // SEARCH_MAX_BUCKETS, which is plenty for the node budgets noisy searches run with.
+    static TranspositionTable forSearch(long nodes) {
+        return new TranspositionTable(Long.highestOneBit(Math.max(Math.min(nodes / 2, SEARCH_MAX_BUCKETS), 1)));
+    }
+
+    // Called at the start of each search; moves the age on once a new time slice has begun, so entries
+    // stored in earlier slices become preferred victims.
+    void newSearch() {
+        int slice = (int) ((System.nanoTime() - startNanos) / SLICE_NANOS) & AGE_MASK;
+        if (slice != age) {
+            age = slice;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(table, 0L);
+    }
+
+    long sizeBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    // The packed data for this key, or 0 when the table has nothing for it.
+    long probe(long key) {
+        int base = bucket(key);
+        for (int slot = base; slot < base + LONGS_PER_BUCKET; slot += 2) {
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == key && bound(data) != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    // Scores are stored relative to the node, so mate scores are converted from root distance first.
+    void store(long key, int move, int score, int depth, int bound, int ply) {
+        int current = age;
+        int base = bucket(key);
+        int target = base;
+        int worst = Integer.MAX_VALUE;
+        for (int slot = base; slot < base + LONGS_PER_BUCKET; slot += 2) {
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == key || bound(data) == 0) {
+                if (move == Move.NONE && bound(data) != 0) {
+                    move = move(data); // keep the known best move when this result has none
+                }
+                target = slot;
+                break;
+            }
+            int value = depth(data) - AGE_WEIGHT * ((current - age(data)) & AGE_MASK);
+            if (value < worst) {
+                worst = value;
+                target = slot;
+            }
+        }
+        long data = (Move.compact(move) & 0xFFFFL)
+                | ((toStored(score, ply) & 0xFFFFL) << 16)
+                | ((long) Math.min(Math.max(depth, 0), 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) current << 42);
+        table[target] = key ^ data;
+        table[target + 1] = data;
+    }
+
+    static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    static int score(long data, int ply) {
+        int stored = (short) (data >>> 16);
+        if (stored >= Engine.MATE_SCORE - Engine.MAX_PLY) {
+            return stored - ply;
+        }
+        if (stored <= -Engine.MATE_SCORE + Engine.MAX_PLY) {
+            return stored + ply;
+        }
+        return stored;
+    }
+
+    static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    static int bound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> 42) & AGE_MASK);
+    }
+
+    private static int toStored(int score, int ply) {
+        if (score >= Engine.MATE_SCORE - Engine.MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -Engine.MATE_SCORE + Engine.MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private int bucket(long key) {
+        return (int) (key & bucketMask) * LONGS_PER_BUCKET;
+    }
+}
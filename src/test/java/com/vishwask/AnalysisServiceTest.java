@@ -0,0 +1,103 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.AnalysisService;
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.engine.Engine;
+import com.vishwask.engine.EngineScheduler;
+import com.vishwask.engine.EngineScheduler.Priority;
+import com.vishwask.engine.SearchLimits;
+import com.vishwask.engine.SearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisServiceTest {
+
+    private static final String ITALIAN = "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+
+    private final Engine engine = new Engine(4, 0);
+    private final EngineScheduler scheduler = new EngineScheduler(engine, 1, 16);
+
+    @AfterEach
+    void close() {
+        scheduler.close();
+        engine.close();
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneSearchAndTheResultIsCached() throws Exception {
+        AnalysisService analysis = new AnalysisService(scheduler, 30, 100);
+        EngineScheduler.Job blocker = scheduler.submit("blocker", Priority.LIVE, new ChessBoard(), SearchLimits.time(60000, 60000));
+
+        CompletableFuture<SearchResult> first = analysis.analyze(ChessBoard.fromFen(ITALIAN), SearchLimits.depth(4), "alice");
+        CompletableFuture<SearchResult> second = analysis.analyze(ChessBoard.fromFen(ITALIAN), SearchLimits.depth(4), "bob");
+        assertEquals(1, analysis.getInFlight());
+        assertEquals(2, scheduler.getStats().getSubmitted());
+
+        blocker.cancel();
+        SearchResult result = first.get(10, TimeUnit.SECONDS);
+        assertSame(result, second.get(10, TimeUnit.SECONDS));
+        while (analysis.getInFlight() > 0) {
+            Thread.sleep(5);
+        }
+
+        CompletableFuture<SearchResult> cached = analysis.analyze(ChessBoard.fromFen(ITALIAN), SearchLimits.depth(4), "carol");
+        assertTrue(cached.isDone());
+        assertSame(result, cached.get());
+        assertEquals(2, scheduler.getStats().getSubmitted());
+
+        // Other limits are another search.
+        analysis.analyze(ChessBoard.fromFen(ITALIAN), SearchLimits.depth(3), "carol").get(10, TimeUnit.SECONDS);
+        assertEquals(3, scheduler.getStats().getSubmitted());
+    }
+
+    @Test
+    void testEveryAnalysisIsBoundedByTimeAndNodes() throws Exception {
+        AnalysisService analysis = new AnalysisService(scheduler, 30, 100);
+        SearchResult result = analysis.analyze(new ChessBoard(), SearchLimits.depth(AnalysisService.MAX_DEPTH), "alice")
+                .get(AnalysisService.MAX_TIME_MILLIS + 5000, TimeUnit.MILLISECONDS);
+        assertTrue(result.hasMove());
+        assertTrue(result.getNodes() <= AnalysisService.MAX_NODES + 1000);
+    }
+
+    @Test
+    void testResultsShortenedUnderLoadAreNotCached() throws Exception {
+        AnalysisService analysis = new AnalysisService(scheduler, 30, 100);
+        EngineScheduler.Job blocker = scheduler.submit("blocker", Priority.LIVE, new ChessBoard(), SearchLimits.time(60000, 60000));
+        List<CompletableFuture<SearchResult>> backlog = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            backlog.add(analysis.analyze(new ChessBoard(), SearchLimits.depth(8).withNodes(20000 + i), "alice"));
+        }
+        blocker.cancel();
+        for (CompletableFuture<SearchResult> search : backlog) {
+            search.get(10, TimeUnit.SECONDS);
+        }
+        while (analysis.getInFlight() > 0) {
+            Thread.sleep(5);
+        }
+        assertTrue(scheduler.getStats().getDegraded() > 0);
+
+        // The first was started with five more queued, so shallower than asked; the last with none.
+        analysis.analyze(new ChessBoard(), SearchLimits.depth(8).withNodes(20000), "alice").get(10, TimeUnit.SECONDS);
+        assertEquals(8, scheduler.getStats().getSubmitted());
+        assertTrue(analysis.analyze(new ChessBoard(), SearchLimits.depth(8).withNodes(20005), "alice").isDone());
+    }
+
+    @Test
+    void testResultsExpire() throws Exception {
+        AnalysisService analysis = new AnalysisService(scheduler, 0, 100);
+        analysis.analyze(new ChessBoard(), SearchLimits.depth(3), "alice").get(10, TimeUnit.SECONDS);
+        while (analysis.getInFlight() > 0) {
+            Thread.sleep(5);
+        }
+        analysis.analyze(new ChessBoard(), SearchLimits.depth(3), "alice").get(10, TimeUnit.SECONDS);
+        assertEquals(2, scheduler.getStats().getSubmitted());
+    }
+}
@@ -0,0 +1,171 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.Attacks;
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.MoveList;
+import com.vishwask.engine.Bitbase;
+import com.vishwask.engine.BitbaseGenerator;
+import com.vishwask.engine.Bitbases;
+import com.vishwask.engine.Engine;
+import com.vishwask.engine.EngineOptions;
+import com.vishwask.engine.SearchLimits;
+import com.vishwask.engine.SearchResult;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BitbaseTest {
+
+    private static Bitbases generated;
+    private static Bitbases bundled;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        Bitbase kqk = BitbaseGenerator.generate("KQK", Bitbases.none());
+        Bitbase krk = BitbaseGenerator.generate("KRK", Bitbases.none());
+        Bitbase kpk = BitbaseGenerator.generate("KPK", Bitbases.of(kqk, krk));
+        generated = Bitbases.of(kqk, krk, kpk);
+
+        Bitbase[] tables = new Bitbase[3];
+        String[] names = {"KQK", "KRK", "KPK"};
+        for (int i = 0; i < names.length; i++) {
+            try (InputStream in = BitbaseTest.class.getResourceAsStream("/bitbases/" + names[i] + ".bin")) {
+                tables[i] = Bitbase.open(names[i], in);
+            }
+        }
+        bundled = Bitbases.of(tables);
+    }
+
+    @Test
+    void testQueenAndRookWinWheneverWhiteIsToMove() {
+        for (String name : new String[]{"KQK", "KRK"}) {
+            Bitbase table = generated.get(name);
+            int legal = 0;
+            for (int wk = 0; wk < 64; wk++) {
+                for (int bk = 0; bk < 64; bk++) {
+                    for (int sq = 0; sq < 64; sq++) {
+                        int value = table.probe(true, wk, bk, new int[]{sq});
+                        if (value != Bitbase.ILLEGAL) {
+                            legal++;
+                            assertEquals(Bitbase.WIN, value, name + " " + wk + " " + bk + " " + sq);
+                        }
+                    }
+                }
+            }
+            assertTrue(legal > 100000, name + " " + legal);
+        }
+    }
+
+    @Test
+    void testBundledTablesMatchTheGenerator() {
+        for (String name : new String[]{"KQK", "KRK", "KPK"}) {
+            for (int wk = 0; wk < 64; wk++) {
+                for (int bk = 0; bk < 64; bk++) {
+                    if ((Attacks.king(wk) & 1L << bk) != 0) {
+                        continue;
+                    }
+                    for (int sq = 8; sq < 56; sq++) {
+                        int[] squares = {sq};
+                        assertEquals(generated.get(name).probe(false, wk, bk, squares),
+                                bundled.get(name).probe(false, wk, bk, squares), name);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPawnEndings() {
+        // Rook pawn with the defending king in front of it.
+        assertEquals(Bitbase.DRAW, bundled.probe(ChessBoard.fromFen("8/8/8/8/8/k7/P7/K7 w - - 0 1")));
+        // The black king is outside the square of the pawn.
+        assertEquals(Bitbase.WIN, bundled.probe(ChessBoard.fromFen("8/8/8/8/8/8/P6k/K7 w - - 0 1")));
+        assertEquals(Bitbase.LOSS, bundled.probe(ChessBoard.fromFen("8/8/8/8/8/8/P6k/K7 b - - 0 1")));
+        // King on the sixth rank in front of its pawn wins whoever is to move.
+        assertEquals(Bitbase.WIN, bundled.probe(ChessBoard.fromFen("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1")));
+        assertEquals(Bitbase.LOSS, bundled.probe(ChessBoard.fromFen("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1")));
+        // The same ending with colours swapped is probed mirrored.
+        assertEquals(Bitbase.WIN, bundled.probe(ChessBoard.fromFen("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1")));
+        assertEquals(Bitbase.DRAW, bundled.probe(ChessBoard.fromFen("k7/p7/K7/8/8/8/8/8 b - - 0 1")));
+    }
+
+    @Test
+    void testUncoveredPositionsAreUnknown() {
+        assertEquals(Bitbases.UNKNOWN, bundled.probe(new ChessBoard()));
+        assertEquals(Bitbases.UNKNOWN, bundled.probe(ChessBoard.fromFen("4k3/8/8/8/8/8/8/4K2R w K - 0 1")));
+        assertEquals(Bitbases.UNKNOWN, bundled.probe(ChessBoard.fromFen("4k3/8/8/8/8/8/8/2B1KN2 w - - 0 1")));
+        // Boards without a king on one side, as puzzle setups may have, match no table.
+        assertEquals(Bitbases.UNKNOWN, bundled.probe(ChessBoard.fromFen("4k3/8/8/8/8/8/8/Q7 w - - 0 1")));
+        assertEquals(Bitbases.UNKNOWN, bundled.probe(ChessBoard.fromFen("r7/8/8/8/8/8/8/R3K3 w - - 0 1")));
+    }
+
+    @Test
+    void testProbingDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Per-thread allocation counters are unavailable on this JVM");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        ChessBoard board = ChessBoard.fromFen("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1");
+        int value = 0;
+        for (int i = 0; i < 20_000; i++) { // warm up so JIT compilation is not measured
+            value += bundled.probe(board);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20_000; i++) {
+            value += bundled.probe(board);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(40_000 * Bitbase.WIN, value);
+        assertTrue(allocated < 64 * 1024, "Probing allocated " + allocated + " bytes");
+    }
+
+    // Both sides played by the engine with the tables; the stronger side has to actually deliver mate, not
+    // just keep a won position until the fifty-move rule draws it.
+    private static int pliesToMate(String fen) {
+        ChessBoard board = ChessBoard.fromFen(fen);
+        MoveList moves = new MoveList();
+        try (Engine engine = new Engine(4, 0, EngineOptions.DEFAULT, bundled)) {
+            for (int ply = 0; board.getHalfmoveClock() < 100; ply++) {
+                if (board.generateLegalMoves(board.getSideToMove(), moves) == 0) {
+                    assertTrue(board.isInCheck(board.getSideToMove()), "stalemate after " + ply + " plies: " + board.toFen());
+                    return ply;
+                }
+                board.makeMove(engine.search(board, SearchLimits.depth(6)).getBestMove());
+            }
+        }
+        return fail("not mated within the fifty-move rule: " + board.toFen());
+    }
+
+    @Test
+    void testWonTablePositionsAreConvertedToMate() {
+        assertTrue(pliesToMate("8/8/8/3k4/8/8/3K4/7Q w - - 0 1") < 60);
+        assertTrue(pliesToMate("8/8/8/4k3/8/8/8/R3K3 w - - 0 1") < 80);
+    }
+
+    @Test
+    void testSearchUsesTablesToFindAWinningMove() {
+        try (Engine engine = new Engine(4, 0, EngineOptions.DEFAULT, bundled)) {
+            // A table position at the root: only Kd2 and Kf2 win, the pawn moves and the other king moves draw.
+            SearchResult result = engine.search(ChessBoard.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1"), SearchLimits.depth(4));
+            String move = Move.toString(result.getBestMove());
+            assertTrue(move.equals("e1d2") || move.equals("e1f2"), move);
+
+            // Taking the rook converts into a won table position, scored from the table without searching it.
+            result = engine.search(ChessBoard.fromFen("4k3/8/8/8/8/8/3rP3/4K3 w - - 0 1"), SearchLimits.depth(4));
+            assertEquals("e1d2", Move.toString(result.getBestMove()));
+            assertTrue(result.getScore() > 10000);
+            assertTrue(result.getNodes() < 1000, result.getNodes() + " nodes");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.BoardCodec;
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.Perft;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardCodecTest {
+
+    @Test
+    void testReferencePositionsRoundTrip() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessBoard board = ChessBoard.fromFen(position.getFen());
+            String encoded = BoardCodec.encode(board);
+            ChessBoard restored = BoardCodec.decode(encoded);
+
+            assertTrue(encoded.length() <= 64, position.getName());
+            assertArrayEquals(board.getBoardState(), restored.getBoardState(), position.getName());
+            assertEquals(board.getSideToMove(), restored.getSideToMove());
+            assertEquals(board.getCastlingRights(), restored.getCastlingRights());
+            assertEquals(board.getZobristKey(), restored.getZobristKey());
+            assertEquals(Perft.perft(board, 2), Perft.perft(restored, 2));
+        }
+    }
+
+    @Test
+    void testEnPassantAndSideToMoveSurvive() {
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/8/3p4/8/4P3/4K3 w - - 0 1");
+        board.movePiece(6, 4, 4, 4); // e4, black can take en passant on e3
+
+        ChessBoard restored = BoardCodec.decode(BoardCodec.encode(board));
+
+        assertEquals(Color.BLACK, restored.getSideToMove());
+        assertEquals(board.getEnPassantSquare(), restored.getEnPassantSquare());
+        assertTrue(restored.isValidMove(4, 3, 5, 4, Color.BLACK));
+    }
+
+    @Test
+    void testRejectsMalformedData() {
+        assertThrows(IllegalArgumentException.class, () -> BoardCodec.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> BoardCodec.decode("AAAA"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.Perft;
+import com.vishwask.chess.Piece;
+import com.vishwask.chess.PieceType;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BoardRestoreAllocationTest {
+
+    private static final int ITERATIONS = 20_000;
+
+    @Test
+    void testPiecesAreSharedInstances() {
+        ChessBoard board = new ChessBoard(new ChessBoard().getBoardState());
+        assertSame(Piece.of(PieceType.PAWN, Color.WHITE), board.getPiece(6, 0));
+        assertSame(board.getPiece(6, 0), board.getPiece(6, 7));
+        assertSame(Piece.of(PieceType.KNIGHT, Color.BLACK), Piece.fromSymbol("♞"));
+        assertSame(Piece.of(PieceType.KNIGHT, Color.BLACK), Piece.fromFenChar('n'));
+        assertEquals("♔", Piece.of(PieceType.KING, Color.WHITE).getSymbol());
+    }
+
+    @Test
+    void testRestoreDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        assumeTrue(threads != null, "Per-thread allocation counters are unavailable on this JVM");
+
+        String[][] state = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen()).getBoardState();
+        ChessBoard source = new ChessBoard(state);
+        ChessBoard target = new ChessBoard();
+        for (int i = 0; i < ITERATIONS; i++) { // warm up so JIT compilation is not measured
+            target.setBoardState(state);
+            target.copyPositionFrom(source);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            target.setBoardState(state);
+            target.copyPositionFrom(source);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(source.getZobristKey(), target.getZobristKey());
+        // A single Piece or String per restore would already cost hundreds of kilobytes here.
+        assertTrue(allocated < 64 * 1024, "Restoring boards allocated " + allocated + " bytes");
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}
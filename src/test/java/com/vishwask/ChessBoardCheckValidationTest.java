@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 
 import com.vishwask.chess.ChessBoard;
 import com.vishwask.chess.Color;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.MoveList;
 import com.vishwask.chess.Piece;
 import com.vishwask.chess.PieceType;
 
@@ -147,4 +149,107 @@ class ChessBoardCheckValidationTest {
         assertTrue(board.isValidMove(6, 0, 5, 0, Color.WHITE),
                   "Should allow normal moves when not in check");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCannotCastleThroughSquareAttackedByPawn() {
+        String[][] boardState = new String[8][8];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                boardState[row][col] = "";
+            }
+        }
+        boardState[7][4] = "KING,WHITE"; // e1
+        boardState[7][7] = "ROOK,WHITE"; // h1
+        boardState[7][0] = "ROOK,WHITE"; // a1
+        boardState[6][6] = "PAWN,BLACK"; // g2 attacks f1 and h1
+
+        ChessBoard board = new ChessBoard(boardState);
+
+        assertFalse(board.isValidMove(7, 4, 7, 6, Color.WHITE),
+                   "King should not castle through a square attacked by a pawn");
+        assertTrue(board.isValidMove(7, 4, 7, 2, Color.WHITE),
+                  "Queenside castling should remain available");
+    }
+
+    @Test
+    void testEnPassantThatExposesKingIsRejected() {
+        String[][] boardState = new String[8][8];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                boardState[row][col] = "";
+            }
+        }
+        boardState[3][0] = "KING,WHITE"; // a5
+        boardState[3][4] = "PAWN,WHITE"; // e5
+        boardState[1][3] = "PAWN,BLACK"; // d7
+        boardState[3][7] = "ROOK,BLACK"; // h5
+        boardState[0][7] = "KING,BLACK"; // h8
+
+        ChessBoard board = new ChessBoard(boardState);
+        assertTrue(board.movePiece(1, 3, 3, 3), "Black double pawn push should be legal");
+
+        assertFalse(board.isValidMove(3, 4, 2, 3, Color.WHITE),
+                   "En passant must not leave the king exposed along the rank");
+        assertTrue(board.isValidMove(3, 4, 2, 4, Color.WHITE),
+                  "Plain pawn advance should still be legal");
+    }
+
+    @Test
+    void testStartingPositionHasTwentyLegalMoves() {
+        ChessBoard board = new ChessBoard();
+        MoveList moves = new MoveList();
+
+        assertEquals(20, board.generateLegalMoves(Color.WHITE, moves));
+        assertEquals(20, board.generateLegalMoves(Color.BLACK, moves));
+    }
+
+    @Test
+    void testPinnedPieceOnlyMovesAlongPin() {
+        String[][] boardState = new String[8][8];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                boardState[row][col] = "";
+            }
+        }
+        boardState[7][4] = "KING,WHITE"; // e1
+        boardState[5][4] = "ROOK,WHITE"; // e3, pinned
+        boardState[1][4] = "QUEEN,BLACK"; // e7
+        boardState[0][0] = "KING,BLACK"; // a8
+
+        ChessBoard board = new ChessBoard(boardState);
+        MoveList moves = new MoveList();
+        board.generateLegalMoves(Color.WHITE, moves);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.fromRow(move) == 5 && Move.fromCol(move) == 4) {
+                assertEquals(4, Move.toCol(move), "Pinned rook must stay on the e-file");
+            }
+        }
+        assertTrue(moves.contains(Move.encode(5 * 8 + 4, 1 * 8 + 4, Move.FLAG_CAPTURE)),
+                  "Pinned rook may capture the pinning queen");
+    }
+
+    @Test
+    void testUnmakeMoveRestoresPosition() {
+        ChessBoard board = new ChessBoard();
+        assertTrue(board.movePiece(6, 4, 4, 4)); // e4
+        assertTrue(board.movePiece(1, 3, 3, 3)); // d5
+        String[][] before = board.getBoardState();
+        int castlingBefore = board.getCastlingRights();
+        int enPassantBefore = board.getEnPassantSquare();
+
+        MoveList moves = new MoveList();
+        int count = board.generateLegalMoves(Color.WHITE, moves);
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves.get(i));
+            assertEquals(Color.BLACK, board.getSideToMove());
+            board.unmakeMove();
+            assertArrayEquals(before, board.getBoardState(), "Board differs after unmaking " + Move.toString(moves.get(i)));
+            assertEquals(castlingBefore, board.getCastlingRights());
+            assertEquals(enPassantBefore, board.getEnPassantSquare());
+        }
+        assertArrayEquals(new int[]{1, 3}, board.getLastMoveFrom());
+        assertEquals(Color.WHITE, board.getSideToMove());
+    }
+}
@@ -0,0 +1,221 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.engine.Engine;
+import com.vishwask.engine.EngineScheduler;
+import com.vishwask.engine.EngineScheduler.Priority;
+import com.vishwask.engine.SearchLimits;
+import com.vishwask.engine.SearchResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineSchedulerTest {
+
+    private final Engine engine = new Engine(4, 0);
+    private EngineScheduler scheduler;
+
+    @AfterEach
+    void close() {
+        scheduler.close();
+        engine.close();
+    }
+
+    // Occupies the single worker until cancelled.
+    private EngineScheduler.Job block() throws InterruptedException {
+        EngineScheduler.Job blocker = scheduler.submit("blocker", Priority.LIVE, new ChessBoard(), SearchLimits.time(60000, 60000));
+        while (scheduler.getStats().getRunning() == 0) {
+            Thread.sleep(5);
+        }
+        return blocker;
+    }
+
+    private EngineScheduler.Job submit(String owner, Priority priority, List<String> finished) {
+        EngineScheduler.Job job = scheduler.submit(owner, priority, new ChessBoard(), SearchLimits.depth(1));
+        job.getFuture().thenRun(() -> finished.add(owner));
+        return job;
+    }
+
+    @Test
+    void testSearchesRunAndAreCounted() throws Exception {
+        scheduler = new EngineScheduler(engine, 2, 16);
+        SearchResult result = scheduler.search("game", Priority.LIVE, new ChessBoard(), SearchLimits.depth(3));
+        assertTrue(result.hasMove());
+        CompletableFuture<SearchResult> queued = scheduler.submit("game", Priority.BACKGROUND, new ChessBoard(), SearchLimits.depth(2)).getFuture();
+        assertTrue(queued.get(5, TimeUnit.SECONDS).hasMove());
+
+        EngineScheduler.Stats stats = scheduler.getStats();
+        assertEquals(2, stats.getSubmitted());
+        assertEquals(2, stats.getCompleted());
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(2, stats.getWorkers());
+    }
+
+    @Test
+    void testLiveSearchesGoFirstAndOwnersTakeTurns() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 16);
+        EngineScheduler.Job blocker = block();
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        submit("analysis", Priority.BACKGROUND, finished);
+        submit("a", Priority.LIVE, finished);
+        submit("a", Priority.LIVE, finished);
+        EngineScheduler.Job last = submit("a", Priority.LIVE, finished);
+        submit("b", Priority.LIVE, finished);
+        assertEquals(5, scheduler.getStats().getQueueDepth());
+        assertEquals(4, (int) scheduler.getStats().getQueued().get(Priority.LIVE));
+
+        blocker.cancel();
+        assertTrue(blocker.getFuture().isCancelled());
+        last.getFuture().get(5, TimeUnit.SECONDS);
+        while (finished.size() < 5) {
+            Thread.sleep(5);
+        }
+        assertEquals(Arrays.asList("a", "b", "a", "a", "analysis"), finished);
+        assertTrue(scheduler.getStats().getMaxWaitMillis() > 0);
+    }
+
+    @Test
+    void testFullQueueShedsBackgroundWorkAndShortensLiveSearches() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 2);
+        EngineScheduler.Job blocker = block();
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        EngineScheduler.Job background = submit("analysis", Priority.BACKGROUND, finished);
+        submit("a", Priority.LIVE, finished);
+        assertThrows(RejectedExecutionException.class, () -> submit("analysis", Priority.BACKGROUND, finished));
+
+        // A live search displaces the queued background one.
+        submit("b", Priority.LIVE, finished);
+        ExecutionException displaced = assertThrows(ExecutionException.class, () -> background.getFuture().get());
+        assertTrue(displaced.getCause() instanceof RejectedExecutionException);
+
+        // With only live searches queued, another one still gets in, beyond the capacity, at the minimum depth
+        // and never on the submitting thread; past the headroom it is rejected too.
+        EngineScheduler.Job overflow = scheduler.submit("c", Priority.LIVE, new ChessBoard(), SearchLimits.depth(10));
+        assertFalse(overflow.getFuture().isDone());
+        assertThrows(RejectedExecutionException.class, () -> submit("d", Priority.LIVE, finished));
+
+        EngineScheduler.Stats stats = scheduler.getStats();
+        assertEquals(3, stats.getQueueDepth());
+        assertEquals(3, stats.getRejected());
+        assertEquals(1, stats.getOverflow());
+        blocker.cancel();
+        assertEquals(EngineScheduler.MIN_DEPTH, overflow.getFuture().get(5, TimeUnit.SECONDS).getDepth());
+    }
+
+    @Test
+    void testPonderingGivesWayToOtherSearches() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 4);
+        EngineScheduler.Job ponder = scheduler.submit("a", Priority.PONDER, new ChessBoard(), SearchLimits.time(60000, 60000));
+        while (scheduler.getStats().getRunning() == 0) {
+            Thread.sleep(5);
+        }
+        SearchResult live = scheduler.submit("b", Priority.LIVE, new ChessBoard(), SearchLimits.depth(2)).getFuture().get(5, TimeUnit.SECONDS);
+        assertTrue(live.hasMove());
+        assertTrue(ponder.getFuture().isCancelled());
+        assertEquals(1, scheduler.getStats().getPreempted());
+    }
+
+    @Test
+    void testLiveSearchesPreemptBackgroundWork() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 4);
+        EngineScheduler.Job analysis = scheduler.submit("a", Priority.BACKGROUND, new ChessBoard(), SearchLimits.time(60000, 60000));
+        while (scheduler.getStats().getRunning() == 0) {
+            Thread.sleep(5);
+        }
+        EngineScheduler.Job queued = scheduler.submit("b", Priority.BACKGROUND, new ChessBoard(), SearchLimits.depth(1));
+        assertFalse(analysis.getFuture().isDone());
+
+        SearchResult live = scheduler.submit("c", Priority.LIVE, new ChessBoard(), SearchLimits.depth(2)).getFuture().get(5, TimeUnit.SECONDS);
+        assertTrue(live.hasMove());
+        assertTrue(analysis.getFuture().isCancelled());
+        assertTrue(queued.getFuture().get(5, TimeUnit.SECONDS).hasMove());
+        assertEquals(1, scheduler.getStats().getPreempted());
+    }
+
+    @Test
+    void testPromotedPonderSearchFinishesOnTheClockAndIsNotPreempted() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 4);
+        EngineScheduler.Job ponder = scheduler.submit("a", Priority.PONDER, new ChessBoard(), SearchLimits.depth(SearchLimits.MAX_DEPTH));
+        while (scheduler.getStats().getRunning() == 0) {
+            Thread.sleep(5);
+        }
+        assertTrue(scheduler.promote(ponder, SearchLimits.time(100, 200)));
+        assertEquals(Priority.LIVE, ponder.getPriority());
+        EngineScheduler.Job other = scheduler.submit("b", Priority.LIVE, new ChessBoard(), SearchLimits.depth(1));
+
+        assertTrue(ponder.getFuture().get(5, TimeUnit.SECONDS).hasMove());
+        assertTrue(other.getFuture().get(5, TimeUnit.SECONDS).hasMove());
+        assertEquals(0, scheduler.getStats().getPreempted());
+        assertEquals(1, scheduler.getStats().getPromoted());
+        assertFalse(scheduler.promote(ponder, SearchLimits.time(100, 200)));
+    }
+
+    @Test
+    void testPromotedQueuedSearchGoesAheadOfBackgroundWork() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 16);
+        EngineScheduler.Job blocker = block();
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        submit("analysis", Priority.BACKGROUND, finished);
+        EngineScheduler.Job ponder = submit("a", Priority.PONDER, finished);
+        assertTrue(scheduler.promote(ponder, SearchLimits.depth(1)));
+        assertEquals(1, (int) scheduler.getStats().getQueued().get(Priority.LIVE));
+        assertEquals(0, (int) scheduler.getStats().getQueued().get(Priority.PONDER));
+
+        blocker.cancel();
+        ponder.getFuture().get(5, TimeUnit.SECONDS);
+        while (finished.size() < 2) {
+            Thread.sleep(5);
+        }
+        assertEquals(Arrays.asList("a", "analysis"), finished);
+    }
+
+    @Test
+    void testLiveSearchReusesWhatPonderingFound() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 4);
+        ChessBoard position = ChessBoard.fromFen("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+        SearchResult pondered = scheduler.submit("a", Priority.PONDER, position, SearchLimits.depth(6)).getFuture().get(30, TimeUnit.SECONDS);
+        SearchResult live = scheduler.search("a", Priority.LIVE, position, SearchLimits.depth(6));
+        assertEquals(pondered.getBestMove(), live.getBestMove());
+        assertTrue(live.getNodes() * 2 < pondered.getNodes(), live.getNodes() + " after " + pondered.getNodes());
+    }
+
+    @Test
+    void testWorkOfEveryJobIsReportedWhenItEnds() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 4);
+        EngineScheduler.Job blocker = block();
+        EngineScheduler.Job queued = scheduler.submit("a", Priority.LIVE, new ChessBoard(), SearchLimits.depth(1));
+        queued.cancel();
+        assertSame(queued, queued.getFinished().get(5, TimeUnit.SECONDS));
+        assertEquals(0, queued.getNodes());
+
+        Thread.sleep(50);
+        blocker.cancel();
+        assertTrue(blocker.getFuture().isCancelled());
+        blocker.getFinished().get(5, TimeUnit.SECONDS);
+        assertTrue(blocker.getNodes() > 0);
+        assertTrue(blocker.getCpuNanos() > 0);
+    }
+
+    @Test
+    void testCancellingAQueuedSearchRemovesIt() throws Exception {
+        scheduler = new EngineScheduler(engine, 1, 4);
+        EngineScheduler.Job blocker = block();
+        EngineScheduler.Job queued = scheduler.submit("a", Priority.LIVE, new ChessBoard(), SearchLimits.depth(1));
+        assertEquals(1, scheduler.getStats().getQueueDepth());
+        queued.cancel();
+        assertTrue(queued.getFuture().isCancelled());
+        assertEquals(0, scheduler.getStats().getQueueDepth());
+        blocker.cancel();
+    }
+}
@@ -0,0 +1,351 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.AIDifficulty;
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.MoveList;
+import com.vishwask.chess.Perft;
+import com.vishwask.chess.PieceSquareTables;
+import com.vishwask.engine.Engine;
+import com.vishwask.engine.EngineOptions;
+import com.vishwask.engine.Evaluator;
+import com.vishwask.engine.SearchLimits;
+import com.vishwask.engine.SearchResult;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineTest {
+
+    private final Engine engine = new Engine();
+
+    @Test
+    void testFindsMateInOne() {
+        ChessBoard board = ChessBoard.fromFen("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1");
+        SearchResult result = engine.search(board, SearchLimits.depth(3));
+        assertEquals("d1d8", Move.toString(result.getBestMove()));
+        assertEquals(1, result.getMateIn());
+    }
+
+    @Test
+    void testTakesHangingQueen() {
+        ChessBoard board = ChessBoard.fromFen("rnb1kbnr/pppp1ppp/8/4p1q1/3P4/2N5/PPP1PPPP/R1BQKBNR w KQkq - 0 3");
+        SearchResult result = engine.search(board, SearchLimits.depth(3));
+        assertEquals("c1g5", Move.toString(result.getBestMove()));
+        assertTrue(result.getScore() > 500);
+    }
+
+    @Test
+    void testLeavesCallerBoardUntouchedAndRespectsNodeLimit() {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+        String before = board.toFen();
+        SearchResult result = engine.search(board, SearchLimits.depth(20).withNodes(5000));
+        assertEquals(before, board.toFen());
+        assertTrue(result.hasMove());
+        assertTrue(result.getNodes() <= 5000);
+        assertTrue(board.findLegalMove(Move.compact(result.getBestMove())) != Move.NONE);
+    }
+
+    @Test
+    void testSearchSeesRepetitionsFromTheGameSoFar() {
+        ChessBoard board = ChessBoard.fromFen("6k1/8/8/8/8/8/5Q2/6K1 w - - 0 1");
+        for (int i = 0; i < 2; i++) {
+            board.movePiece(7, 6, 7, 7); // Kh1
+            board.movePiece(0, 6, 0, 7); // Kh8
+            board.movePiece(7, 7, 7, 6); // Kg1
+            if (i == 0) {
+                board.movePiece(0, 7, 0, 6); // Kg8
+            }
+        }
+        // Lost on material, Black steers into the position already seen twice.
+        SearchResult result = engine.search(board, SearchLimits.depth(4));
+        assertEquals("h8g8", Move.toString(result.getBestMove()));
+        assertEquals(0, result.getScore());
+        assertTrue(engine.search(ChessBoard.fromFen(board.toFen()), SearchLimits.depth(4)).getScore() < -500);
+    }
+
+    @Test
+    void testDeepensUntilTheDepthLimit() {
+        ChessBoard board = new ChessBoard();
+        SearchResult result = engine.search(board, SearchLimits.depth(4));
+        assertEquals(4, result.getDepth());
+        assertEquals(4, result.getPrincipalVariation().size());
+    }
+
+    @Test
+    void testStopsAtTheHardDeadlineWithACompletedDepth() {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+        SearchResult result = engine.search(board, SearchLimits.time(50, 100));
+        assertTrue(result.hasMove());
+        assertTrue(result.getDepth() >= 1);
+        assertTrue(result.getDepth() < SearchLimits.MAX_DEPTH);
+        assertTrue(result.getElapsedMillis() < 1000, "Search took " + result.getElapsedMillis() + " ms");
+    }
+
+    @Test
+    void testInterruptStopsTheSearch() throws Exception {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+        SearchResult[] result = new SearchResult[1];
+        boolean[] interrupted = new boolean[1];
+        Thread thread = new Thread(() -> {
+            result[0] = engine.search(board, SearchLimits.time(60000, 60000));
+            interrupted[0] = Thread.currentThread().isInterrupted();
+        });
+        thread.start();
+        Thread.sleep(100);
+        long interruptedAt = System.nanoTime();
+        thread.interrupt();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertTrue((System.nanoTime() - interruptedAt) / 1_000_000 < 1000);
+        assertTrue(result[0].hasMove());
+        assertTrue(interrupted[0]);
+    }
+
+    @Test
+    void testClockBudgetsShrinkWithTheRemainingTime() {
+        SearchLimits plenty = SearchLimits.depth(10).withClock(300_000, 5_000);
+        assertEquals(5_000, plenty.getHardMillis());
+        assertTrue(plenty.getSoftMillis() <= plenty.getHardMillis() / 2);
+        assertEquals(10, plenty.getDepth());
+
+        SearchLimits scramble = SearchLimits.depth(10).withClock(2_000, 5_000);
+        assertTrue(scramble.getHardMillis() <= 250);
+        assertTrue(scramble.getSoftMillis() >= 1);
+        assertFalse(SearchLimits.depth(10).isTimed());
+    }
+
+    @Test
+    void testRepeatedSearchReusesTheHashTable() {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+        SearchResult first = engine.search(board, SearchLimits.depth(5));
+        SearchResult second = engine.search(board, SearchLimits.depth(5));
+        assertEquals(first.getBestMove(), second.getBestMove());
+        assertTrue(second.getNodes() * 4 < first.getNodes(), first.getNodes() + " then " + second.getNodes());
+
+        engine.clearHash();
+        assertEquals(first.getNodes(), engine.search(board, SearchLimits.depth(5)).getNodes());
+    }
+
+    @Test
+    void testEvaluationNoiseVariesTheMoveWithoutTouchingTheHashTable() {
+        ChessBoard board = new ChessBoard();
+        engine.clearHash();
+        long quiet = engine.search(board, SearchLimits.depth(4)).getNodes();
+
+        engine.clearHash();
+        Set<Integer> moves = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            moves.add(engine.search(board, SearchLimits.depth(2).withEvalNoise(300)).getBestMove());
+        }
+        assertTrue(moves.size() > 1);
+        assertEquals(quiet, engine.search(board, SearchLimits.depth(4)).getNodes());
+    }
+
+    @Test
+    void testDifficultyLevelsBoundTheSearch() {
+        SearchLimits configured = SearchLimits.depth(8).withNodes(2000000).withThreads(4);
+        SearchLimits beginner = AIDifficulty.BEGINNER.limit(configured);
+        assertEquals(1, beginner.getDepth());
+        assertEquals(1, beginner.getThreads());
+        assertTrue(beginner.getEvalNoise() > 0);
+        assertEquals(8, AIDifficulty.MASTER.limit(configured).getDepth());
+        assertEquals(4, AIDifficulty.MASTER.limit(configured).getThreads());
+        assertEquals(0, AIDifficulty.MASTER.limit(configured).getEvalNoise());
+        for (AIDifficulty level : AIDifficulty.values()) {
+            assertFalse(level.isPonder() && level.getEvalNoise() > 0, level + " ponders with a table of its own");
+        }
+
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+        SearchResult weak = engine.search(board, AIDifficulty.BEGINNER.limit(configured));
+        SearchResult club = engine.search(board, AIDifficulty.CLUB.limit(configured));
+        assertTrue(weak.hasMove());
+        assertTrue(weak.getNodes() <= AIDifficulty.BEGINNER.getNodeBudget());
+        assertTrue(weak.getCpuNanos() > 0);
+        assertTrue(club.getNodes() > weak.getNodes());
+    }
+
+    @Test
+    void testMultiPvReportsDistinctLinesBestFirst() {
+        ChessBoard board = ChessBoard.fromFen("rnb1kbnr/pppp1ppp/8/4p1q1/3P4/2N5/PPP1PPPP/R1BQKBNR w KQkq - 0 3");
+        SearchResult result = engine.search(board, SearchLimits.depth(4).withLines(3));
+        assertEquals("c1g5", Move.toString(result.getBestMove()));
+        assertEquals(3, result.getLines().size());
+        Set<Integer> moves = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            SearchResult line = result.getLines().get(i);
+            assertTrue(moves.add(line.getBestMove()));
+            assertEquals(line.getBestMove(), line.getPrincipalVariationMoves()[0]);
+            if (i > 0) {
+                assertTrue(line.getScore() <= result.getLines().get(i - 1).getScore());
+            }
+        }
+        assertEquals(1, engine.search(board, SearchLimits.depth(2)).getLines().size());
+
+        // Fewer lines than asked for when there are fewer legal moves.
+        ChessBoard check = ChessBoard.fromFen("4k3/8/8/8/8/8/3q4/4K3 w - - 0 1");
+        assertEquals(2, engine.search(check, SearchLimits.depth(3).withLines(4)).getLines().size());
+    }
+
+    @Test
+    void testHashSizeIsRoundedToWholeBuckets() {
+        assertEquals(Engine.DEFAULT_HASH_MB << 20, engine.getHashSizeBytes());
+        assertEquals(2L << 20, new Engine(3).getHashSizeBytes()); // rounded down to a power of two
+        assertEquals(1L << 20, new Engine(0).getHashSizeBytes());
+    }
+
+    @Test
+    void testHelperThreadsShareTheSearch() {
+        try (Engine parallel = new Engine(4, 3)) {
+            ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+            SearchResult result = parallel.search(board, SearchLimits.depth(5).withThreads(4));
+            assertEquals(4, result.getThreads());
+            assertEquals(5, result.getDepth());
+            assertTrue(board.findLegalMove(Move.compact(result.getBestMove())) != Move.NONE);
+
+            SearchResult mate = parallel.search(ChessBoard.fromFen("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"),
+                    SearchLimits.depth(6).withThreads(4));
+            assertEquals("d1d8", Move.toString(mate.getBestMove()));
+        }
+    }
+
+    @Test
+    void testNodeLimitCoversHelperThreads() {
+        try (Engine parallel = new Engine(4, 3)) {
+            ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+            SearchResult result = parallel.search(board, SearchLimits.depth(20).withNodes(20000).withThreads(4));
+            assertEquals(4, result.getThreads());
+            // Each helper may overshoot by less than one batch of 256 nodes.
+            assertTrue(result.getNodes() <= 20000 + 3 * 256, result.getNodes() + " nodes");
+        }
+    }
+
+    @Test
+    void testHelperThreadsAreCappedPerEngine() {
+        try (Engine parallel = new Engine(4, 2)) {
+            SearchResult result = parallel.search(new ChessBoard(), SearchLimits.depth(3).withThreads(16));
+            assertEquals(3, result.getThreads());
+        }
+        try (Engine serial = new Engine(4, 0)) {
+            assertEquals(1, serial.search(new ChessBoard(), SearchLimits.depth(3).withThreads(8)).getThreads());
+        }
+    }
+
+    @Test
+    void testMoveOrderingKeepsBenchmarkNodeCountDown() {
+        long nodes = 0;
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            try (Engine fresh = new Engine(4, 0)) {
+                nodes += fresh.search(ChessBoard.fromFen(position.getFen()), SearchLimits.depth(5)).getNodes();
+            }
+        }
+        // Captures-first ordering needed about 570k nodes here without quiescence; hash move, MVV-LVA, killers
+        // and history keep the count well below that with quiescence nodes included.
+        assertTrue(nodes < 350_000, "Benchmark searched " + nodes + " nodes");
+    }
+
+    @Test
+    void testQuiescenceSeesTheRecaptureBeyondTheHorizon() {
+        // At depth 1 a plain search would grab the pawn on d5 and evaluate before exd5.
+        ChessBoard board = ChessBoard.fromFen("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1");
+        SearchResult result = engine.search(board, SearchLimits.depth(1));
+        assertNotEquals("d1d5", Move.toString(result.getBestMove()));
+        assertTrue(result.getScore() > 600);
+    }
+
+    @Test
+    void testQuiescenceFollowsTheWholeExchange() {
+        // Rxe5 Rxe5 Rxe5 nets a knight because the rook on e1 backs up the one on e2.
+        ChessBoard board = ChessBoard.fromFen("4r1k1/8/8/4n3/8/8/4R3/4R1K1 w - - 0 1");
+        SearchResult result = engine.search(board, SearchLimits.depth(1));
+        assertEquals("e2e5", Move.toString(result.getBestMove()));
+    }
+
+    @Test
+    void testSelectiveSearchCutsTheTreeWithoutChangingTheMove() {
+        long plain = 0;
+        long selective = 0;
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessBoard board = ChessBoard.fromFen(position.getFen());
+            try (Engine baseline = new Engine(4, 0, EngineOptions.none());
+                 Engine full = new Engine(4, 0, EngineOptions.DEFAULT)) {
+                SearchResult expected = baseline.search(board, SearchLimits.depth(6));
+                SearchResult actual = full.search(board, SearchLimits.depth(6));
+                assertEquals(Move.toString(expected.getBestMove()), Move.toString(actual.getBestMove()), position.getName());
+                plain += expected.getNodes();
+                selective += actual.getNodes();
+            }
+        }
+        assertTrue(selective * 3 < plain, plain + " nodes without selectivity, " + selective + " with");
+    }
+
+    @Test
+    void testNoNullMoveInPawnEndings() {
+        // With only kings and pawns zugzwang is common, so the null-move option must not change anything.
+        ChessBoard board = ChessBoard.fromFen("8/8/3k4/3p4/3P4/3K4/8/8 w - - 0 1");
+        try (Engine without = new Engine(4, 0, EngineOptions.none());
+             Engine with = new Engine(4, 0, EngineOptions.none().withNullMove(true))) {
+            SearchResult expected = without.search(board, SearchLimits.depth(8));
+            SearchResult actual = with.search(board, SearchLimits.depth(8));
+            assertEquals(expected.getNodes(), actual.getNodes());
+            assertEquals(expected.getScore(), actual.getScore());
+        }
+    }
+
+    @Test
+    void testReportsNoMoveWhenMated() {
+        ChessBoard board = ChessBoard.fromFen("3R2k1/5ppp/8/8/8/8/5PPP/6K1 b - - 1 1");
+        SearchResult result = engine.search(board, SearchLimits.depth(2));
+        assertFalse(result.hasMove());
+        assertEquals(-Engine.MATE_SCORE, result.getScore());
+    }
+
+    @Test
+    void testEvaluationIsSymmetric() {
+        ChessBoard start = new ChessBoard();
+        assertEquals(0, Evaluator.evaluate(start));
+        assertEquals(PieceSquareTables.MAX_PHASE, start.getPhase());
+
+        // The same position with colours swapped and the board flipped scores the same for the side to move.
+        ChessBoard board = ChessBoard.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        ChessBoard mirrored = ChessBoard.fromFen("r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1");
+        assertEquals(Evaluator.evaluate(board), Evaluator.evaluate(mirrored));
+    }
+
+    @Test
+    void testEvaluationSumsFollowMakeAndUnmake() {
+        MoveList moves = new MoveList();
+        MoveList replies = new MoveList();
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessBoard board = ChessBoard.fromFen(position.getFen());
+            int root = Evaluator.evaluate(board);
+            int count = board.generateLegalMoves(board.getSideToMove(), moves);
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves.get(i));
+                assertTrue(board.evaluationMatchesRecomputation(), position.getName());
+                int replyCount = board.generateLegalMoves(board.getSideToMove(), replies);
+                for (int j = 0; j < replyCount; j++) {
+                    board.makeMove(replies.get(j));
+                    assertTrue(board.evaluationMatchesRecomputation(), position.getName());
+                    board.unmakeMove();
+                }
+                board.unmakeMove();
+            }
+            assertEquals(root, Evaluator.evaluate(board), position.getName());
+            assertEquals(board.getPhase(), new ChessBoard(board).getPhase());
+        }
+    }
+
+    @Test
+    void testPhaseTapersTowardsEndgameValues() {
+        // A lone pawn on the seventh rank is worth far more once the pieces are off.
+        ChessBoard ending = ChessBoard.fromFen("4k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals(0, ending.getPhase());
+        assertEquals(ending.getEndgameScore(), Evaluator.evaluate(ending));
+        assertTrue(ending.getEndgameScore() > ending.getMidgameScore());
+    }
+}
@@ -0,0 +1,55 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.BoardCodec;
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Perft;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FenSnapshotTest {
+
+    @Test
+    void testReferencePositionsExportTheirFen() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessBoard board = ChessBoard.fromFen(position.getFen());
+            assertEquals(position.getFen(), board.toFen(), position.getName());
+            assertEquals(board.getZobristKey(), ChessBoard.fromFen(board.toFen()).getZobristKey());
+        }
+    }
+
+    @Test
+    void testClocksFollowMovesAndUnmake() {
+        ChessBoard board = new ChessBoard();
+        board.movePiece(7, 6, 5, 5); // Nf3
+        board.movePiece(0, 6, 2, 5); // Nf6
+        board.movePiece(6, 4, 4, 4); // e4, black can take nothing en passant
+
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 0 2", board.toFen());
+
+        board.unmakeMove();
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/8/5N2/PPPPPPPP/RNBQKB1R w KQkq - 2 2", board.toFen());
+    }
+
+    @Test
+    void testSnapshotReloadKeepsCastlingAndEnPassant() {
+        ChessBoard board = ChessBoard.fromFen("r3k2r/8/8/8/3p4/8/4P3/R3K2R w Kq - 4 30");
+        board.movePiece(7, 7, 6, 7); // Rh2 gives up white kingside castling
+        board.movePiece(0, 4, 0, 5); // Kf8 gives up black castling
+        board.movePiece(6, 4, 4, 4); // e4 allows dxe3
+
+        String fen = board.toFen();
+        assertEquals("r4k1r/8/8/8/3pP3/8/7R/R3K3 b - e3 0 31", fen);
+        assertEquals(fen, ChessBoard.fromFen(fen).toFen());
+        assertEquals(fen, BoardCodec.decode(BoardCodec.encode(board)).toFen());
+    }
+
+    @Test
+    void testRejectsMalformedFen() {
+        assertThrows(IllegalArgumentException.class, () -> ChessBoard.fromFen("8/8/8 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessBoard.fromFen(Perft.START_FEN.replace(" w ", " x ")));
+        assertThrows(IllegalArgumentException.class, () -> ChessBoard.fromFen(Perft.START_FEN.replace("KQkq", "KQz")));
+        assertThrows(IllegalArgumentException.class, () -> ChessBoard.fromFen(Perft.START_FEN.replace(" 0 1", " -1 1")));
+    }
+}
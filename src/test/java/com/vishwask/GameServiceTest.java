@@ -0,0 +1,145 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.vishwask.chess.AIDifficulty;
+import com.vishwask.chess.BoardCodec;
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.Game;
+import com.vishwask.chess.GameEndType;
+import com.vishwask.chess.GameRepository;
+import com.vishwask.chess.GameService;
+import com.vishwask.chess.GameStatus;
+import com.vishwask.chess.GameType;
+import com.vishwask.chess.User;
+import com.vishwask.chess.UserRepository;
+import com.vishwask.engine.EngineScheduler;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Computer replies are searched off the request thread and pushed when played. No book, so every reply is
+// searched; MASTER games search without limit until stopped.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:game-service-test",
+        "chess.engine.book=",
+        "chess.ai.depth=40",
+        "chess.ai.max-nodes=0",
+        "chess.ai.ponder=false"
+})
+class GameServiceTest {
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EngineScheduler engineScheduler;
+
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    private User newUser() {
+        String name = "player-" + UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(new User(name, name + "@example.com", "secret"));
+    }
+
+    private void awaitIdleEngine() throws InterruptedException {
+        for (int i = 0; i < 500 && engineScheduler.getStats().getRunning() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, engineScheduler.getStats().getRunning());
+    }
+
+    @Test
+    void testReplyIsSearchedInTheBackgroundAndPushed() {
+        User user = newUser();
+        Game game = gameService.createGameVsAi(user, Color.WHITE, null, AIDifficulty.CASUAL);
+        String topic = "/topic/game/" + game.getGameUuid();
+
+        Game afterMove = gameService.makeMove(game.getGameUuid(), user, 6, 4, 4, 4, null); // e4
+        assertEquals(Color.BLACK, afterMove.getCurrentTurn());
+
+        // Created, the human move, then the reply.
+        verify(messagingTemplate, timeout(10000).times(3)).convertAndSend(eq(topic), any(Object.class));
+        Game replied = gameService.getGame(game.getGameUuid());
+        assertEquals(Color.WHITE, replied.getCurrentTurn());
+        assertEquals(2, (int) replied.getMoveCount());
+        assertEquals(Color.BLACK, replied.getLastMoveColor());
+    }
+
+    @Test
+    void testComputersFirstMoveIsSearchedInTheBackground() {
+        User user = newUser();
+        Game game = gameService.createGameVsAi(user, Color.BLACK, null, AIDifficulty.CASUAL);
+        String topic = "/topic/game/" + game.getGameUuid();
+
+        // Created, then the computer's opening move.
+        verify(messagingTemplate, timeout(10000).times(2)).convertAndSend(eq(topic), any(Object.class));
+        Game replied = gameService.getGame(game.getGameUuid());
+        assertEquals(Color.BLACK, replied.getCurrentTurn());
+        assertEquals(1, (int) replied.getMoveCount());
+        assertEquals(Color.WHITE, replied.getLastMoveColor());
+    }
+
+    @Test
+    void testResigningStopsTheSearchAndDropsItsMove() throws Exception {
+        User user = newUser();
+        Game game = gameService.createGameVsAi(user, Color.WHITE, null, AIDifficulty.MASTER);
+        String topic = "/topic/game/" + game.getGameUuid();
+        gameService.makeMove(game.getGameUuid(), user, 6, 4, 4, 4, null);
+        for (int i = 0; i < 500 && engineScheduler.getStats().getRunning() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        Game resigned = gameService.resignGame(game.getGameUuid(), user);
+        assertEquals(GameStatus.FINISHED, resigned.getStatus());
+        assertEquals(GameEndType.RESIGNATION, resigned.getEndType());
+        awaitIdleEngine();
+
+        Game stored = gameService.getGame(game.getGameUuid());
+        assertEquals(1, (int) stored.getMoveCount());
+        assertEquals(GameEndType.RESIGNATION, stored.getEndType());
+        verify(messagingTemplate, times(2)).convertAndSend(eq(topic), any(Object.class));
+    }
+
+    @Test
+    void testGameLeftOnTheComputersTurnIsResumedWhenFetched() {
+        // As after a restart: stored on the computer's turn, with no search running for it.
+        ChessBoard board = ChessBoard.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        Game game = new Game();
+        game.setGameUuid(UUID.randomUUID().toString());
+        game.setGameName("Resumed");
+        game.setGameType(GameType.HUMAN_VS_AI);
+        game.setStatus(GameStatus.ACTIVE);
+        game.setPlayerColor(Color.WHITE);
+        game.setAiDifficulty(AIDifficulty.CASUAL);
+        game.setWhitePlayer(newUser());
+        game.setCurrentTurn(Color.BLACK);
+        game.setMoveCount(1);
+        game.setBoardData(BoardCodec.encode(board));
+        gameRepository.save(game);
+
+        gameService.getGame(game.getGameUuid());
+        verify(messagingTemplate, timeout(10000)).convertAndSend(eq("/topic/game/" + game.getGameUuid()), any(Object.class));
+        Game resumed = gameService.getGame(game.getGameUuid());
+        assertEquals(Color.WHITE, resumed.getCurrentTurn());
+        assertEquals(2, (int) resumed.getMoveCount());
+    }
+}
@@ -0,0 +1,77 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.MoveList;
+import com.vishwask.chess.Perft;
+import com.vishwask.chess.PieceType;
+import com.vishwask.chess.PuzzleService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveEncodingTest {
+
+    @Test
+    void testCompactMovesRoundTripThroughBoard() {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+        try (MoveList moves = MoveList.acquire()) {
+            int count = board.generateLegalMoves(board.getSideToMove(), moves);
+            for (int i = 0; i < count; i++) {
+                int move = moves.get(i);
+                assertEquals(move, board.findLegalMove(Move.parse(Move.toString(move))));
+                assertEquals(move, board.findLegalMove(PuzzleService.MoveData.fromMove(move).toCompactMove()));
+                int[] coords = Move.toCoordinates(move);
+                if (!Move.isPromotion(move)) {
+                    assertEquals(move, board.findLegalMove(coords[0], coords[1], coords[2], coords[3], null));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFlagsAreRestoredFromCompactForm() {
+        ChessBoard board = ChessBoard.fromFen("r3k2r/8/8/3pP3/8/8/1p6/R3K2R w KQkq d6 0 1");
+        assertTrue(Move.isCastle(board.findLegalMove(Move.parse("e1g1"))));
+        assertTrue(Move.isEnPassant(board.findLegalMove(Move.parse("e5d6"))));
+        int promotion = board.findLegalMove(6, 1, 7, 0, PieceType.KNIGHT); // b2xa1=N
+        assertTrue(Move.isCapture(promotion));
+        assertEquals(PieceType.KNIGHT, Move.promotion(promotion));
+        assertEquals(Move.NONE, board.findLegalMove(Move.parse("e1e3")));
+        assertEquals(Move.NONE, Move.parse("z9e4"));
+    }
+
+    @Test
+    void testCaptureGenerationMatchesFilteredLegalMoves() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessBoard board = ChessBoard.fromFen(position.getFen());
+            try (MoveList all = MoveList.acquire(); MoveList captures = MoveList.acquire()) {
+                int count = board.generateLegalMoves(board.getSideToMove(), all);
+                int tactical = board.generateLegalCaptures(board.getSideToMove(), captures);
+                int expected = 0;
+                for (int i = 0; i < count; i++) {
+                    int move = all.get(i);
+                    if (Move.isCapture(move) || Move.isPromotion(move)) {
+                        expected++;
+                        assertTrue(captures.contains(move), position.getName() + " " + Move.toString(move));
+                    }
+                }
+                assertEquals(expected, tactical, position.getName());
+            }
+        }
+    }
+
+    @Test
+    void testPooledListsAreReusedInStackOrder() {
+        MoveList outer = MoveList.acquire();
+        MoveList inner = MoveList.acquire();
+        assertThrows(IllegalStateException.class, outer::close);
+        inner.close();
+        outer.close();
+        try (MoveList again = MoveList.acquire()) {
+            assertSame(outer, again);
+            assertTrue(again.isEmpty());
+        }
+    }
+}
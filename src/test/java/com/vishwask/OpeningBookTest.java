@@ -0,0 +1,141 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Move;
+import com.vishwask.chess.MoveList;
+import com.vishwask.engine.OpeningBook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OpeningBook build(String... lines) throws IOException {
+        Path file = tempDir.resolve("book.bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            OpeningBook.write(Arrays.asList(lines), out);
+        }
+        return OpeningBook.open(file);
+    }
+
+    @Test
+    void testPicksMovesInProportionToWeight() throws IOException {
+        OpeningBook book = build("e2e4 e7e5", "e2e4 c7c5", "e2e4 c7c5 # comment", "d2d4 d7d5");
+        assertEquals(5, book.size());
+
+        Random random = new Random(42);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(Move.toString(book.probe(new ChessBoard(), random)), 1, Integer::sum);
+        }
+        assertEquals(2, counts.size());
+        assertTrue(counts.get("e2e4") > 1900 && counts.get("e2e4") < 2600, counts.toString());
+
+        ChessBoard board = new ChessBoard();
+        board.makeMove(findMove(board, "e2e4"));
+        String reply = Move.toString(book.probe(board, random));
+        assertTrue(reply.equals("e7e5") || reply.equals("c7c5"), reply);
+    }
+
+    @Test
+    void testUnknownPositionsAndEmptyBookHaveNoMove() throws IOException {
+        OpeningBook book = build("e2e4 e7e5");
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/8/8/8/8/4K2R w K - 0 1");
+        assertEquals(Move.NONE, book.probe(board, new Random()));
+        assertEquals(Move.NONE, OpeningBook.empty().probe(new ChessBoard(), new Random()));
+    }
+
+    @Test
+    void testCastlingRoundTrips() throws IOException {
+        OpeningBook book = build("e2e4 e7e5 g1f3 b8c6 f1c4 f8c5 e1g1");
+        ChessBoard board = new ChessBoard();
+        Random random = new Random();
+        for (int ply = 0; ply < 6; ply++) {
+            board.makeMove(book.probe(board, random));
+        }
+        int castle = book.probe(board, random);
+        assertTrue(Move.isCastle(castle));
+        assertEquals("e1g1", Move.toString(castle));
+    }
+
+    @Test
+    void testKeysArePolyglots() throws IOException {
+        // Reference keys from the Polyglot book format description, covering castling rights, en passant
+        // files hashed only when a capture is possible, and the side to move.
+        build("e2e4 d7d5 e4e5 f7f5 e1e2 e8f7 g1f3", "a2a4 b7b5 h2h4 b5b4 c2c4 b4c3 a1a3 a7a6");
+        Set<Long> keys = new HashSet<>();
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(tempDir.resolve("book.bin")));
+        for (int offset = 0; offset < file.capacity(); offset += 16) {
+            keys.add(file.getLong(offset));
+        }
+        long[] expected = {
+                0x463b96181691fc9cL, // start position
+                0x823c9b50fd114196L, // e4
+                0x0756b94461c50fb0L, // e4 d5
+                0x662fafb965db29d4L, // e4 d5 e5
+                0x22a48b5a8e47ff78L, // e4 d5 e5 f5
+                0x652a607ca3f242c1L, // e4 d5 e5 f5 Ke2
+                0x00fdd303c946bdd9L, // e4 d5 e5 f5 Ke2 Kf7
+                0x3c8123ea7b067637L, // a4 b5 h4 b4 c4
+                0x5c3f9b829b279560L, // a4 b5 h4 b4 c4 bxc3 Ra3
+        };
+        for (long key : expected) {
+            assertTrue(keys.contains(key), Long.toHexString(key));
+        }
+    }
+
+    @Test
+    void testRejectsIllegalLines() {
+        assertThrows(IllegalArgumentException.class, () -> build("e2e5"));
+    }
+
+    @Test
+    void testBundledBookCoversTheOpening() throws IOException {
+        OpeningBook book;
+        try (InputStream in = getClass().getResourceAsStream("/book/openings.bin")) {
+            book = OpeningBook.open(in);
+        }
+        assertTrue(book.size() > 100);
+
+        // Every game following the book stays in it for at least eight plies.
+        Random random = new Random(7);
+        for (int game = 0; game < 50; game++) {
+            ChessBoard board = new ChessBoard();
+            for (int ply = 0; ply < 8; ply++) {
+                int move = book.probe(board, random);
+                assertNotEquals(Move.NONE, move, board.toFen());
+                board.makeMove(move);
+            }
+        }
+    }
+
+    private static int findMove(ChessBoard board, String text) {
+        try (MoveList moves = MoveList.acquire()) {
+            board.generateLegalMoves(board.getSideToMove(), moves);
+            for (int i = 0; i < moves.size(); i++) {
+                if (Move.toString(moves.get(i)).equals(text)) {
+                    return moves.get(i);
+                }
+            }
+        }
+        return Move.NONE;
+    }
+}
@@ -0,0 +1,42 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Perft;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+
+    @Test
+    void testReferencePositionsMatchPublishedCounts() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessBoard board = ChessBoard.fromFen(position.getFen());
+            for (int depth = 1; depth <= 3; depth++) {
+                assertEquals(position.getExpectedNodes(depth), Perft.perft(board, depth),
+                        position.getName() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    void testDivideSumsToPerft() {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+        Map<String, Long> divide = Perft.divide(board, 2);
+
+        assertEquals(48, divide.size());
+        assertEquals(2039L, divide.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void testParallelPerftMatchesSequential() {
+        ChessBoard board = ChessBoard.fromFen(Perft.START_FEN);
+
+        assertEquals(197281L, Perft.parallelPerft(board, 4, ForkJoinPool.commonPool()));
+        assertEquals(197281L, Perft.perft(board, 4), "Parallel run must not disturb the source board");
+    }
+}
@@ -0,0 +1,114 @@
+package com.vishwask;
+
+import org.junit.jupiter.api.Test;
+
+import com.vishwask.chess.ChessBoard;
+import com.vishwask.chess.Color;
+import com.vishwask.chess.MoveList;
+import com.vishwask.chess.Perft;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZobristKeyTest {
+
+    @Test
+    void testTranspositionsShareKey() {
+        ChessBoard first = new ChessBoard();
+        first.movePiece(6, 6, 5, 6); // g3
+        first.movePiece(1, 4, 2, 4); // e6
+        first.movePiece(7, 6, 5, 7); // Nh3
+
+        ChessBoard second = new ChessBoard();
+        second.movePiece(7, 6, 5, 7); // Nh3
+        second.movePiece(1, 4, 2, 4); // e6
+        second.movePiece(6, 6, 5, 6); // g3
+
+        assertEquals(first.getZobristKey(), second.getZobristKey());
+        assertNotEquals(new ChessBoard().getZobristKey(), first.getZobristKey());
+    }
+
+    @Test
+    void testIncrementalKeyMatchesRecomputation() {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS.get(1).getFen());
+        MoveList moves = new MoveList();
+        MoveList replies = new MoveList();
+        long rootKey = board.getZobristKey();
+
+        int count = board.generateLegalMoves(board.getSideToMove(), moves);
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves.get(i));
+            assertEquals(board.computeZobristKey(), board.getZobristKey());
+            int replyCount = board.generateLegalMoves(board.getSideToMove(), replies);
+            for (int j = 0; j < replyCount; j++) {
+                board.makeMove(replies.get(j));
+                assertEquals(board.computeZobristKey(), board.getZobristKey());
+                board.unmakeMove();
+            }
+            board.unmakeMove();
+        }
+        assertEquals(rootKey, board.getZobristKey());
+    }
+
+    @Test
+    void testEnPassantOnlyHashedWhenCapturePossible() {
+        ChessBoard quiet = new ChessBoard();
+        quiet.movePiece(6, 4, 4, 4); // e4, no black pawn can take
+
+        assertEquals(-1, quiet.getEnPassantSquare());
+
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/8/3p4/8/4P3/4K3 w - - 0 1");
+        board.movePiece(6, 4, 4, 4); // e4 next to the d4 pawn
+        assertEquals(5 * 8 + 4, board.getEnPassantSquare());
+        assertEquals(Color.BLACK, board.getSideToMove());
+        assertEquals(board.computeZobristKey(), board.getZobristKey());
+    }
+
+    @Test
+    void testCopiesRecogniseRepetitionsOfTheOriginalsPositions() {
+        ChessBoard board = new ChessBoard();
+        board.movePiece(7, 6, 5, 5); // Nf3
+        board.movePiece(0, 6, 2, 5); // Nf6
+        board.movePiece(5, 5, 7, 6); // Ng1
+        ChessBoard copy = new ChessBoard(board);
+        copy.movePiece(2, 5, 0, 6); // Ng8, the starting position again
+        assertTrue(copy.isRepetition());
+
+        ChessBoard restored = new ChessBoard();
+        restored.copyPositionFrom(copy);
+        assertTrue(restored.isRepetition());
+        assertFalse(ChessBoard.fromFen(restored.toFen()).isRepetition());
+    }
+
+    @Test
+    void testUnmakingAnOutOfTurnMoveRestoresTheSideToMove() {
+        ChessBoard board = new ChessBoard();
+        long key = board.getZobristKey();
+        assertTrue(board.movePiece(1, 4, 3, 4)); // e5 with white to move
+        assertEquals(Color.WHITE, board.getSideToMove());
+        assertEquals(board.computeZobristKey(), board.getZobristKey());
+
+        board.unmakeMove();
+        assertEquals(Color.WHITE, board.getSideToMove());
+        assertEquals(key, board.getZobristKey());
+        assertEquals(board.computeZobristKey(), board.getZobristKey());
+        assertEquals(new ChessBoard().toFen(), board.toFen());
+    }
+
+    @Test
+    void testNullMovePassesTheTurnAndUnmakes() {
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/8/3p4/8/4P3/4K3 w - - 0 1");
+        board.movePiece(6, 4, 4, 4); // e4, en passant possible
+        String fen = board.toFen();
+        long key = board.getZobristKey();
+
+        board.makeNullMove();
+        assertEquals(Color.WHITE, board.getSideToMove());
+        assertEquals(-1, board.getEnPassantSquare());
+        assertEquals(board.computeZobristKey(), board.getZobristKey());
+        assertFalse(board.isRepetition());
+
+        board.unmakeMove();
+        assertEquals(fen, board.toFen());
+        assertEquals(key, board.getZobristKey());
+    }
+}